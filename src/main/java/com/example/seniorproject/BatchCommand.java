@@ -0,0 +1,95 @@
+package com.example.seniorproject;
+
+import com.example.seniorproject.model.AnalyzingModel;
+import com.example.seniorproject.model.BatchAnalysis;
+import com.example.seniorproject.model.BatchReport;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+ Command line batch analysis, started with "batch" as the first argument instead of the GUI
+ Usage: batch --originals <dir> --stegos <dir> [--out report.csv|report.jsonl|-] [--format csv|jsonl]
+              [--original-pattern <regex>] [--stego-pattern <regex>] [--threads n] [--memory 2g]
+ Rows are written to the report as each pair finishes; a summary goes to stderr.
+*/
+final class BatchCommand {
+
+    private static final String USAGE = "Usage: batch --originals <dir> --stegos <dir> [--out <file.csv|file.jsonl|->]"
+            + " [--format csv|jsonl] [--original-pattern <regex>] [--stego-pattern <regex>] [--threads <n>] [--memory <bytes, e.g. 2g>]";
+
+    private BatchCommand() {}
+
+    //Returns the process exit code: 0 when every pair was analysed, 1 when some failed, 2 on bad arguments or patterns
+    static int run(String[] args) {
+        Path originals = null, stegos = null, out = null;
+        String format = null;
+        BatchReport.Format reportFormat;
+        Pattern originalRegex, stegoRegex;
+        String originalPattern = "(.+)\\.png";
+        String stegoPattern = "(.+?)(?:[_-]stego)?\\.png";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long memory = Runtime.getRuntime().maxMemory() / 2;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) throw new IllegalArgumentException("Missing value for " + args[i] + ".");
+                switch (args[i]) {
+                    case "--originals" -> originals = Path.of(value);
+                    case "--stegos" -> stegos = Path.of(value);
+                    case "--out" -> out = value.equals("-") ? null : Path.of(value);
+                    case "--format" -> format = value;
+                    case "--original-pattern" -> originalPattern = value;
+                    case "--stego-pattern" -> stegoPattern = value;
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--memory" -> memory = parseBytes(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+                }
+                i++;
+            }
+            if (originals == null || stegos == null) throw new IllegalArgumentException("--originals and --stegos are required.");
+            if (threads < 1) throw new IllegalArgumentException("--threads must be at least 1.");
+            reportFormat = format != null ? BatchReport.Format.valueOf(format.toUpperCase())
+                    : out != null ? BatchReport.Format.forFile(out) : BatchReport.Format.CSV;
+            originalRegex = Pattern.compile(originalPattern);
+            stegoRegex = Pattern.compile(stegoPattern);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            List<BatchAnalysis.Pair> pairs = BatchAnalysis.match(originals, originalRegex, stegos, stegoRegex);
+            BatchAnalysis batch = new BatchAnalysis(new AnalyzingModel(), memory, threads);
+            BatchAnalysis.Summary summary;
+            try (BatchReport report = out != null ? BatchReport.open(out, reportFormat)
+                    : new BatchReport(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), reportFormat)) {
+                summary = batch.run(pairs, report);
+            }
+            System.err.printf("%d pairs, %d failed, %.1f s%n", summary.pairs(), summary.failed(), summary.elapsedMs() / 1000.0);
+            return summary.failed() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    //"512m", "2g", "1048576"
+    static long parseBytes(String text) {
+        String t = text.trim().toLowerCase();
+        long unit = 1;
+        if (t.endsWith("k")) unit = 1L << 10;
+        else if (t.endsWith("m")) unit = 1L << 20;
+        else if (t.endsWith("g")) unit = 1L << 30;
+        if (unit > 1) t = t.substring(0, t.length() - 1);
+        return Long.parseLong(t) * unit;
+    }
+}
@@ -19,6 +19,9 @@ import javafx.stage.Stage;
 public class RunProgram extends Application {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("batch")) {
+            System.exit(BatchCommand.run(args));
+        }
         launch(args);
     }
 
@@ -1,25 +1,47 @@
 package com.example.seniorproject.controller;
 
 import com.example.seniorproject.model.AnalyzingModel;
+import com.example.seniorproject.model.analysis.BitPlanes;
+import com.example.seniorproject.model.analysis.ByteHeatmap;
+import com.example.seniorproject.model.analysis.ChiSquareAttack;
+import com.example.seniorproject.model.analysis.CompactRaster;
+import com.example.seniorproject.model.analysis.DirtyRegions;
+import com.example.seniorproject.model.analysis.ModifiedPixelIndex;
+import com.example.seniorproject.model.analysis.PackedXray;
+import com.example.seniorproject.model.analysis.ProgressiveComparison;
+import com.example.seniorproject.model.analysis.RsAnalysis;
+import com.example.seniorproject.model.analysis.Ssim;
+import com.example.seniorproject.model.analysis.TiledComparison;
+import com.example.seniorproject.model.metrics.MetricsRegistry;
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseLog;
+import com.example.seniorproject.model.metrics.PhaseTags;
 import com.example.seniorproject.view.AnalyzingView;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 
 //Handles user interaction for the Analyze tab
 public class AnalyzingController extends BaseController {
+    //Tile side for the modified-tiles count in the stats line
+    private static final int INDEX_TILE = TiledComparison.TILE;
+
     private final AnalyzingModel model;
     private final AnalyzingView view;
-    private File selectedStegoFile;
-    private File selectedOriginalFile;
+    private LoadedImage selectedStego;
+    private LoadedImage selectedOriginal;
+    //Planes of the last finished analysis, so another plane can be shown without rescanning
+    private BitPlanes lastPlanes;
+    private ImageView lastXrayView;
+    private Label lastXrayLabel;
 
     public AnalyzingController(AnalyzingModel model, AnalyzingView view) {
         this.model = model;
@@ -36,26 +58,37 @@ public class AnalyzingController extends BaseController {
         view.getChooseStegoButton().setOnAction(event -> openStegoChooser());
         view.getAnalyzeButton().setOnAction(event -> handleAnalyze());
         view.getClearButton().setOnAction(event -> handleClear());
+        view.getPlaneChoice().getSelectionModel().selectedIndexProperty()
+                .addListener((obs, old, plane) -> showPlane(plane.intValue()));
     }
 
+    //Rows keep their thumbnails for as long as they are listed, so inputs are previewed at the displayed size
     private void openOriginalChooser() {
         File file = openPngChooser();
         if (file != null) {
-            selectedOriginalFile = file;
-            view.getActiveOriginalView().setImage(new Image(file.toURI().toString()));
-            view.getActiveOriginalLabel().setText(file.getName() + " (original)");
+            loadImage(view, file, AnalyzingView.IMAGE_SIZE, loaded -> {
+                selectedOriginal = loaded;
+                AnalyzingView.showImage(view.getActiveOriginalView(), loaded.image(), loaded.preview().image());
+                view.getActiveOriginalLabel().setText(file.getName() + " (original)");
+            }, analysisButtons());
         }
     }
 
     private void openStegoChooser() {
         File file = openPngChooser();
         if (file != null) {
-            selectedStegoFile = file;
-            view.getActiveStegoView().setImage(new Image(file.toURI().toString()));
-            view.getActiveStegoLabel().setText(file.getName() + " (stego)");
+            loadImage(view, file, AnalyzingView.IMAGE_SIZE, loaded -> {
+                selectedStego = loaded;
+                AnalyzingView.showImage(view.getActiveStegoView(), loaded.image(), loaded.preview().image());
+                view.getActiveStegoLabel().setText(file.getName() + " (stego)");
+            }, analysisButtons());
         }
     }
 
+    private Button[] analysisButtons() {
+        return new Button[]{view.getAnalyzeButton(), view.getChooseOriginalButton(), view.getChooseStegoButton()};
+    }
+
     //Opens a file chooser filtered to PNG images
     private File openPngChooser() {
         FileChooser fc = new FileChooser();
@@ -65,101 +98,207 @@ public class AnalyzingController extends BaseController {
         return fc.showOpenDialog(window);
     }
 
-    //Runs the analysis
+    //Results of one analysis, still packed - the FX thread expands only the thumbnails
+    private record AnalysisResult(BitPlanes planes, int plane, PackedXray xray, ByteHeatmap heatmap, String stats) {}
+
+    //Runs the analysis on a background worker; the active row is filled in when it finishes
     private void handleAnalyze() {
-        if (selectedStegoFile == null) {
+        if (selectedStego == null) {
             showAlert(Alert.AlertType.WARNING, "Stego Image Missing", "Please choose a stego image first.");
             return;
         }
-        try {
-            BufferedImage stego = ImageIO.read(selectedStegoFile);
-            if (stego == null) {
-                showAlert(Alert.AlertType.ERROR, "Load Failed", "Could not read the stego image.");
-                return;
-            }
+        BufferedImage stego = selectedStego.image();
+        BufferedImage original = selectedOriginal != null ? selectedOriginal.image() : null;
+        File stegoFile = selectedStego.file();
+        File originalFile = selectedOriginal != null ? selectedOriginal.file() : null;
+        int plane = view.getPlaneChoice().getSelectionModel().getSelectedIndex();
+        boolean progressive = original != null && view.getProgressiveCheck().isSelected();
+        ImageView heatmapView = view.getActiveHeatmapView();
+        Label statsLabel = progressive ? view.getActiveStatsLabel() : null;
 
+        runInBackground(view, context -> {
+            //Bit planes, steganalysis, then heatmap and metrics when an original is loaded
+            int steps = original == null ? 2 : progressive ? ProgressiveComparison.passes() + 3 : 5;
+            context.begin(steps);
+            PhaseLog log = new PhaseLog();
             long startTime = System.nanoTime();
+            PhaseTags tags = PhaseTags.of(null, stego, 0);
 
-            BufferedImage lsbXray = model.lsbXray(stego);
+            //A comparison of the same two files from an earlier run is reused as a whole
+            AnalyzingModel.Comparison comparison = original == null ? null
+                    : Phase.measure("result cache", tags, log, () -> model.cachedComparison(originalFile, stegoFile, INDEX_TILE));
+            if (comparison != null) context.advance(steps - 2);
 
-            BufferedImage heatmap = null;
-            int modifiedPixels = 0;
+            ByteHeatmap heatmap = null;
             double mse = Double.NaN;
-            double psnr = Double.NaN;
+
+            //Progressive mode compares first, so sampled estimates show up before anything else is computed
+            if (progressive && comparison == null) {
+                ProgressiveComparison sampled = model.progressiveComparison(original, stego);
+                ProgressiveComparison.Estimate exact = Phase.measure("progressive comparison", tags, log, () -> {
+                    while (sampled.hasNext()) {
+                        ProgressiveComparison.Estimate estimate = sampled.refine();
+                        CompactRaster partial = sampled.heatmap();
+                        String interim = interimStatsText(estimate);
+                        Platform.runLater(() -> {
+                            AnalyzingView.showRaster(heatmapView, partial);
+                            statsLabel.setText(interim);
+                        });
+                        context.advance(1);
+                    }
+                    return sampled.estimate();
+                });
+                heatmap = sampled.exactHeatmap();
+                mse = exact.mse();
+            }
+
+            //Against an original the bit planes come with the tiled comparison, which redoes only changed tiles
+            TiledComparison tiled = original != null && !progressive && comparison == null
+                    ? Phase.measure("tiled comparison", tags, log, () -> model.tiledComparison(originalFile, original, stego))
+                    : null;
+            BitPlanes planes = tiled != null && tiled.planes() != null ? tiled.planes()
+                    : Phase.measure("bit planes", tags, log, () -> model.bitPlanes(stego));
+            PackedXray xray = planes.xray(plane);
+            context.advance(tiled != null ? 3 : 1);
+
+            //Blind steganalysis works from the stego image alone
+            AnalyzingModel.Steganalysis blind = model.cachedSteganalysis(stegoFile);
+            if (blind == null) {
+                ChiSquareAttack.Result chi = Phase.measure("chi-square", tags, log, () -> model.chiSquare(stego));
+                RsAnalysis.Result rs = Phase.measure("rs", tags, log, () -> model.rsAnalysis(stego));
+                blind = new AnalyzingModel.Steganalysis(chi, rs);
+                model.storeSteganalysis(stegoFile, blind);
+            }
+            context.advance(1);
 
             //Comparison metrics are only available when an original image is loaded
-            if (selectedOriginalFile != null) {
-                BufferedImage original = ImageIO.read(selectedOriginalFile);
-                if (original == null) {
-                    showAlert(Alert.AlertType.ERROR, "Load Failed", "Could not read the original image.");
-                    return;
-                }
+            if (original != null && comparison == null) {
                 if (original.getWidth() != stego.getWidth() || original.getHeight() != stego.getHeight()) {
-                    showAlert(Alert.AlertType.WARNING, "Size Mismatch",
-                            "Original and stego images must be the same size for comparison.");
-                    return;
+                    throw new IllegalArgumentException("Original and stego images must be the same size for comparison.");
+                }
+                int modifiedTiles, tiles;
+                Ssim.Result similarity;
+                if (tiled != null) {
+                    heatmap = tiled.heatmap();
+                    mse = tiled.mse();
+                    modifiedTiles = tiled.modifiedTiles();
+                    tiles = tiled.tiles();
+                    //SSIM windows cross tile edges and its coarser scales span many tiles, so it is not kept per
+                    //tile; it is the one part of a tiled re-analysis that still reads both images in full
+                    similarity = Phase.measure("ssim", tags, log, () -> model.structuralSimilarity(original, stego));
+                } else {
+                    //One scan of both images serves the modified index and SSIM
+                    DirtyRegions regions = Phase.measure("dirty regions", tags, log, () -> model.dirtyRegions(original, stego));
+                    ModifiedPixelIndex index = Phase.measure("modified index", tags, log,
+                            () -> model.modifiedPixelIndex(regions));
+                    long[] tileCounts = index.tileCounts(INDEX_TILE);
+                    modifiedTiles = touchedTiles(tileCounts);
+                    tiles = tileCounts.length;
+                    similarity = Phase.measure("ssim", tags, log, () -> model.structuralSimilarity(regions));
                 }
-                AnalyzingModel.HeatmapResult result = model.differenceHeatmap(original, stego);
-                heatmap = result.image();
-                modifiedPixels = result.modifiedPixels();
-                mse = model.calculateMse(original, stego);
-                psnr = model.calculatePsnr(mse);
+                context.advance(1);
+
+                comparison = new AnalyzingModel.Comparison(heatmap, mse, modifiedTiles, tiles, similarity);
+                model.storeComparison(originalFile, stegoFile, INDEX_TILE, comparison);
             }
 
             long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
-            String stats = buildStatsText(stego, elapsedMs, heatmap != null, modifiedPixels, mse, psnr);
 
-            updateView(lsbXray, heatmap, stats);
+            String stats = buildStatsText(stego, elapsedMs, blind, comparison)
+                    + (tiled != null ? String.format("  |  Re-analysed tiles: %d / %d", tiled.recomputedTiles(), tiled.tiles()) : "")
+                    + "  |  Phases: " + log.format()
+                    + "  |  Session: " + MetricsRegistry.global().format();
+            return new AnalysisResult(planes, plane, xray, comparison != null ? comparison.heatmap() : null, stats);
+        }, result -> {
+            updateView(result.plane(), result.xray(), result.heatmap(), result.stats());
+            lastPlanes = result.planes();
+            lastXrayView = view.getActiveLsbXrayView();
+            lastXrayLabel = view.getActiveLsbXrayLabel();
 
-            selectedStegoFile = null;
-            selectedOriginalFile = null;
+            selectedStego = null;
+            selectedOriginal = null;
             view.addDefaultRow();
-
-        } catch (Exception ex) {
-            showAlert(Alert.AlertType.ERROR, "Analysis Failed",
-                    ex.getMessage() != null ? ex.getMessage() : "Unable to analyze the image.");
-        }
+        }, "Analysis Failed", "Unable to analyze the image.", analysisButtons());
     }
 
     //Formats all analysis metrics into a single display string
     private String buildStatsText(BufferedImage stego, long elapsedMs,
-                                  boolean hasComparison, int modifiedPixels,
-                                  double mse, double psnr) {
+                                  AnalyzingModel.Steganalysis blind, AnalyzingModel.Comparison comparison) {
         long imageDataBytes = (long) stego.getWidth() * stego.getHeight() * 3;
         StringBuilder sb = new StringBuilder(String.format(
                 "Size: %d × %d px  |  Time: %d ms  |  Image data: %s",
                 stego.getWidth(), stego.getHeight(), elapsedMs, model.formatBytes(imageDataBytes)));
+        sb.append(String.format("  |  Chi-square: p = %.3f, est. %.0f%%", blind.chi().pValue(), 100 * blind.chi().estimatedRate()));
+        sb.append(String.format("  |  RS: est. %.1f%%", 100 * blind.rs().rate()));
 
-        if (hasComparison) {
+        if (comparison != null) {
+            int modifiedPixels = comparison.heatmap().modifiedPixels();
             int total = stego.getWidth() * stego.getHeight();
             sb.append(String.format("  |  Modified pixels: %d / %d (%.2f%%)",
                     modifiedPixels, total, 100.0 * modifiedPixels / total));
-            sb.append(String.format("  |  MSE: %.4f", mse));
-            String psnrStr = Double.isInfinite(psnr) ? "∞" : String.format("%.2f", psnr);
-            sb.append(String.format("  |  PSNR: %s dB", psnrStr));
+            sb.append(String.format("  |  MSE: %.4f", comparison.mse()));
+            sb.append(String.format("  |  PSNR: %s dB", formatPsnr(model.calculatePsnr(comparison.mse()))));
+            sb.append(String.format("  |  SSIM: %.5f  |  MS-SSIM: %.5f",
+                    comparison.similarity().ssim(), comparison.similarity().msSsim()));
+            //How many tiles hold at least one modified pixel - a payload spread over the image touches most of them
+            sb.append(String.format("  |  Modified tiles: %d / %d (%d px)", comparison.modifiedTiles(), comparison.tiles(), INDEX_TILE));
         }
         return sb.toString();
     }
 
+    private static int touchedTiles(long[] tileCounts) {
+        int touched = 0;
+        for (long count : tileCounts) {
+            if (count > 0) touched++;
+        }
+        return touched;
+    }
+
+    //Sampled comparison metrics with their 95% intervals, shown while the progressive passes run
+    private String interimStatsText(ProgressiveComparison.Estimate e) {
+        return String.format("Sampled %.2f%% of pixels  |  Modified pixels: ≈ %.2f%% (95%% CI %.2f–%.2f%%)"
+                        + "  |  MSE: ≈ %.4f (%.4f–%.4f)  |  PSNR: ≈ %s dB (%s–%s)",
+                100 * e.coverage(), 100 * e.modifiedRatio(), 100 * e.modifiedLow(), 100 * e.modifiedHigh(),
+                e.mse(), e.mseLow(), e.mseHigh(), formatPsnr(model.calculatePsnr(e.mse())),
+                formatPsnr(model.calculatePsnr(e.mseHigh())), formatPsnr(model.calculatePsnr(e.mseLow())));
+    }
+
+    private static String formatPsnr(double psnr) {
+        return Double.isInfinite(psnr) ? "∞" : String.format("%.2f", psnr);
+    }
+
     //Pushes analysis results into the active row
-    private void updateView(BufferedImage lsbXray, BufferedImage heatmap, String stats) {
-        view.getActiveLsbXrayView().setImage(SwingFXUtils.toFXImage(lsbXray, null));
-        view.getActiveLsbXrayLabel().setText("LSB X-ray");
+    private void updateView(int plane, PackedXray xray, ByteHeatmap heatmap, String stats) {
+        AnalyzingView.showRaster(view.getActiveLsbXrayView(), xray);
+        view.getActiveLsbXrayLabel().setText(xrayTitle(plane));
 
         if (heatmap != null) {
-            view.getActiveHeatmapView().setImage(SwingFXUtils.toFXImage(heatmap, null));
+            AnalyzingView.showRaster(view.getActiveHeatmapView(), heatmap);
             view.getActiveHeatmapLabel().setText("Difference heatmap");
         } else {
             view.getActiveHeatmapLabel().setText("Difference heatmap - load an original to enable");
         }
-        view.getActiveRow().getChildren().add(new Label(stats));
+        view.getActiveStatsLabel().setText(stats);
+    }
+
+    //Shows another bit plane of the last analysis, from the planes already in memory
+    private void showPlane(int plane) {
+        if (lastPlanes == null || plane < 0 || isBusy()) return;
+        AnalyzingView.showRaster(lastXrayView, lastPlanes.xray(plane));
+        lastXrayLabel.setText(xrayTitle(plane));
+    }
+
+    private static String xrayTitle(int plane) {
+        return plane == 0 ? "LSB X-ray" : "Bit plane " + plane + " X-ray";
     }
 
     private void handleClear() {
+        cancelRunningTask();
+        lastPlanes = null;
         view.getImageArea().getChildren().removeAll(view.getImageRows());
         view.getImageRows().clear();
-        selectedStegoFile = null;
-        selectedOriginalFile = null;
+        selectedStego = null;
+        selectedOriginal = null;
         view.addDefaultRow();
     }
 }
@@ -0,0 +1,59 @@
+package com.example.seniorproject.controller;
+
+import com.example.seniorproject.model.algorithm.ExecutionContext;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+
+//Dedicated worker threads for decode, algorithm and encode work, so the FX thread only updates the UI
+final class BackgroundTasks {
+
+    //One worker per tab is enough - each tab runs at most one job at a time
+    private static final int WORKERS = 3;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, runnable -> {
+        Thread thread = new Thread(runnable, "stego-worker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BackgroundTasks() {}
+
+    //Work that runs off the FX thread and reports through the context
+    @FunctionalInterface
+    interface Job<T> {
+        T run(ExecutionContext context) throws Exception;
+    }
+
+    //Wraps a job in a JavaFX Task; its progress follows the context and Task.cancel() stops the algorithm loops
+    //whenReturned runs on the FX thread once the job has really stopped - after it returns or throws, not when
+    //cancel() is called, since a cancelled job may still be inside a loop or an encode until its next check
+    static <T> Task<T> create(Job<T> job, Runnable whenReturned) {
+        AtomicBoolean claimed = new AtomicBoolean();
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                if (!claimed.compareAndSet(false, true)) return null;
+                try {
+                    return job.run(ExecutionContext.of(this::updateProgress, this::isCancelled));
+                } finally {
+                    Platform.runLater(whenReturned);
+                }
+            }
+        };
+        //A job cancelled before a worker picked it up never runs, so it has returned already
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, event -> {
+            if (claimed.compareAndSet(false, true)) whenReturned.run();
+        });
+        return task;
+    }
+
+    static void start(Task<?> task) {
+        EXECUTOR.execute(task);
+    }
+}
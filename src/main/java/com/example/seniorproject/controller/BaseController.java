@@ -1,11 +1,26 @@
 package com.example.seniorproject.controller;
 
+import com.example.seniorproject.model.Algorithms;
+import com.example.seniorproject.model.DecodedImageCache;
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+import com.example.seniorproject.view.BaseView;
+import com.example.seniorproject.view.FxRaster;
+import com.example.seniorproject.view.RasterPreviews;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.function.Consumer;
+import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
 
 //Shared helpers
 public abstract class BaseController {
 
+    private Task<?> runningTask;
+
     protected void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -14,9 +29,14 @@ public abstract class BaseController {
         alert.showAndWait();
     }
 
+    //Algorithms that scatter data with an integer key
+    protected static boolean needsKey(String algorithm) {
+        return Algorithms.needsKey(algorithm);
+    }
+
     //Reads and validates the key field
     protected int parseKey(String algorithm, TextField keyField) {
-        if (!"Randomized LSB".equals(algorithm) && !"Josephus LSB 3-3-2".equals(algorithm)) {
+        if (!needsKey(algorithm)) {
             return 0;
         }
         String keyText = keyField.getText();
@@ -31,4 +51,69 @@ public abstract class BaseController {
             return Integer.MIN_VALUE;
         }
     }
+
+    //Runs a job on a background worker; only one job per tab at a time, and the given buttons stay disabled until it ends
+    protected <T> void runInBackground(BaseView view, BackgroundTasks.Job<T> job, Consumer<T> onSuccess,
+                                       String failureTitle, String failureMessage, Button... disabledWhileRunning) {
+        if (isBusy()) return;
+
+        //The tab stays busy until the job has returned, even after Cancel, so a cancelled job cannot overlap the next
+        Task<T> task = BackgroundTasks.create(job, () -> finish(view, disabledWhileRunning));
+        runningTask = task;
+        setDisabled(disabledWhileRunning, true);
+        view.getProgressBar().progressProperty().bind(task.progressProperty());
+        view.getCancelButton().setOnAction(event -> task.cancel());
+        view.setProgressVisible(true);
+
+        task.setOnSucceeded(event -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(event -> {
+            Throwable ex = task.getException();
+            showAlert(Alert.AlertType.ERROR, failureTitle,
+                    ex != null && ex.getMessage() != null ? ex.getMessage() : failureMessage);
+        });
+        BackgroundTasks.start(task);
+    }
+
+    //A chosen image, decoded once: the algorithms read image and the preview shows the same pixels
+    protected record LoadedImage(File file, BufferedImage image, FxRaster preview) {}
+
+    //Decodes a chosen image on a background worker, or takes it from the shared cache if any tab decoded it already
+    protected void loadImage(BaseView view, File file, Consumer<LoadedImage> onLoaded, Button... disabledWhileRunning) {
+        loadImage(view, file, 0, onLoaded, disabledWhileRunning);
+    }
+
+    //Same, with the preview scaled down to fit previewSide x previewSide; 0 keeps it at full size
+    protected void loadImage(BaseView view, File file, int previewSide, Consumer<LoadedImage> onLoaded,
+                             Button... disabledWhileRunning) {
+        runInBackground(view, context -> {
+            context.indeterminate();
+            BufferedImage image = Phase.measure("decode", PhaseTags.NONE, null,
+                    () -> DecodedImageCache.shared().load(file));
+            FxRaster preview = previewSide > 0 ? RasterPreviews.preview(image, previewSide) : FxRaster.of(image);
+            return new LoadedImage(file, image, preview);
+        }, onLoaded, "Image Not Loaded", "Unable to read the selected image.", disabledWhileRunning);
+    }
+
+    //True from the start of a job until it has returned, including the time a cancelled job takes to stop
+    protected boolean isBusy() {
+        return runningTask != null;
+    }
+
+    //Asks the running job to stop at its next check
+    protected void cancelRunningTask() {
+        if (isBusy()) runningTask.cancel();
+    }
+
+    private void finish(BaseView view, Button[] disabledWhileRunning) {
+        runningTask = null;
+        view.getProgressBar().progressProperty().unbind();
+        view.setProgressVisible(false);
+        setDisabled(disabledWhileRunning, false);
+    }
+
+    private static void setDisabled(Button[] buttons, boolean disabled) {
+        for (Button button : buttons) {
+            button.setDisable(disabled);
+        }
+    }
 }
@@ -1,17 +1,18 @@
 package com.example.seniorproject.controller;
 
 import com.example.seniorproject.model.EmbeddingModel;
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
 import com.example.seniorproject.view.EmbeddingView;
+import com.example.seniorproject.view.FxRaster;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import javax.imageio.ImageIO;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.image.Image;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
@@ -20,7 +21,7 @@ import javafx.stage.Window;
 public class EmbeddingController extends BaseController {
     private final EmbeddingModel model;
     private final EmbeddingView view;
-    private File selectedCoverFile;
+    private LoadedImage selectedCover;
     private File selectedSecretFile;
 
     public EmbeddingController(EmbeddingModel model, EmbeddingView view) {
@@ -36,25 +37,36 @@ public class EmbeddingController extends BaseController {
     private void initEventHandlers() {
         view.getChooseImageButton().setOnAction(event -> openCoverChooser());
         view.getChooseSecretImageButton().setOnAction(event -> openSecretImageChooser());
+        view.getChooseSecretFileButton().setOnAction(event -> openSecretFileChooser());
         view.getSubmitButton().setOnAction(event -> handleSubmit());
         view.getClearButton().setOnAction(event -> handleClear());
 
-        //Text and image input depending on the secret type
+        //Text, image or file input depending on the secret type
         view.getSecretTypeChoice().getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             boolean isImage = "Image".equals(newVal);
-            view.getSecretTextLabel().setVisible(!isImage);
-            view.getSecretTextLabel().setManaged(!isImage);
-            view.getSecretTextArea().setVisible(!isImage);
-            view.getSecretTextArea().setManaged(!isImage);
+            boolean isFile = "File".equals(newVal);
+            boolean isText = !isImage && !isFile;
+            //A file picked for one type must not be embedded silently under another
+            selectedSecretFile = null;
+            view.getSecretFileLabel().setText("");
+            view.getSecretImageView().setImage(view.loadDefaultImage());
+            view.getSecretTextLabel().setVisible(isText);
+            view.getSecretTextLabel().setManaged(isText);
+            view.getSecretTextArea().setVisible(isText);
+            view.getSecretTextArea().setManaged(isText);
             view.getChooseSecretImageButton().setVisible(isImage);
             view.getChooseSecretImageButton().setManaged(isImage);
             view.getSecretImageView().setVisible(isImage);
             view.getSecretImageView().setManaged(isImage);
+            view.getChooseSecretFileButton().setVisible(isFile);
+            view.getChooseSecretFileButton().setManaged(isFile);
+            view.getSecretFileLabel().setVisible(isFile);
+            view.getSecretFileLabel().setManaged(isFile);
         });
 
         //Only show the key field for algorithms that need one
         view.getAlgorithmChoice().getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            boolean needsKey = "Randomized LSB".equals(newVal) || "Josephus LSB 3-3-2".equals(newVal);
+            boolean needsKey = needsKey(newVal);
             view.getKeyBox().setVisible(needsKey);
             view.getKeyBox().setManaged(needsKey);
         });
@@ -63,19 +75,39 @@ public class EmbeddingController extends BaseController {
     private void openCoverChooser() {
         File file = openFileChooser("Image Files", "*.png");
         if (file != null) {
-            selectedCoverFile = file;
-            view.getCoverImageView().setImage(new Image(file.toURI().toString()));
+            loadImage(view, file, loaded -> {
+                selectedCover = loaded;
+                view.getCoverImageView().setImage(loaded.preview().image());
+            }, choosersAndSubmit());
         }
     }
 
     private void openSecretImageChooser() {
         File file = openFileChooser("Image Files", "*.png", "*.jpg", "*.jpeg");
+        //The secret's bytes are embedded as they are; decoding is only for the preview
+        if (file != null) {
+            loadImage(view, file, loaded -> {
+                if (!"Image".equals(view.getSecretTypeChoice().getValue())) return;
+                selectedSecretFile = file;
+                view.getSecretImageView().setImage(loaded.preview().image());
+            }, choosersAndSubmit());
+        }
+    }
+
+    private void openSecretFileChooser() {
+        File file = openFileChooser("All Files", "*.*");
         if (file != null) {
             selectedSecretFile = file;
-            view.getSecretImageView().setImage(new Image(file.toURI().toString()));
+            view.getSecretFileLabel().setText(file.getName() + " (" + file.length() + " bytes)");
         }
     }
 
+    //Buttons that must wait while an image loads or a message is embedded
+    private Button[] choosersAndSubmit() {
+        return new Button[]{view.getSubmitButton(), view.getChooseImageButton(),
+                view.getChooseSecretImageButton(), view.getChooseSecretFileButton()};
+    }
+
     //Opens a file chooser with the given extension filter
     private File openFileChooser(String description, String... extensions) {
         FileChooser fc = new FileChooser();
@@ -85,70 +117,66 @@ public class EmbeddingController extends BaseController {
         return fc.showOpenDialog(window);
     }
 
-    //Validates inputs, embeds the secret and saves the result
+    //Validates inputs on the FX thread, then reads, embeds and saves on a background worker
     private void handleSubmit() {
-        if (selectedCoverFile == null) {
+        if (selectedCover == null) {
             showAlert(Alert.AlertType.WARNING, "Image Missing", "Please choose an image!");
             return;
         }
 
-        byte[] secret = prepareSecret();
-        if (secret == null) return;
+        if (!validateSecret()) return;
+        boolean secretFromFile = !"Text".equals(view.getSecretTypeChoice().getValue());
+        File secretFile = selectedSecretFile;
+        String secretText = view.getSecretTextArea().getText();
 
         String algorithm = view.getAlgorithmChoice().getValue();
         int key = parseKey(algorithm, view.getKeyField());
         if (key == Integer.MIN_VALUE) return;
+        boolean chunked = view.getChunkedCheck().isSelected();
 
         File outputFile = openSaveDialog();
         if (outputFile == null) return;
 
-        try {
-            BufferedImage coverImage = ImageIO.read(selectedCoverFile);
-            if (coverImage == null) {
-                showAlert(Alert.AlertType.ERROR, "Image Error", "Could not read the selected image.");
-                return;
-            }
-
-            BufferedImage stegoImage = model.embed(coverImage, secret, algorithm, key);
-
-            ImageIO.write(stegoImage, "png", outputFile);
-            view.getResultImageView().setImage(SwingFXUtils.toFXImage(stegoImage, null));
+        BufferedImage coverImage = selectedCover.image();
+        runInBackground(view, context -> {
+            context.indeterminate();
+            byte[] secret = secretFromFile
+                    ? model.readSecretFile(secretFile)
+                    : secretText.getBytes(StandardCharsets.UTF_8);
+
+            BufferedImage stegoImage = chunked
+                    ? model.embedChunked(coverImage, secret, algorithm, key, context)
+                    : model.embed(coverImage, secret, algorithm, key, context);
+
+            context.indeterminate();
+            PhaseTags stegoTags = PhaseTags.of(algorithm, stegoImage, secret.length);
+            Phase.measure("encode", stegoTags, null, () -> ImageIO.write(stegoImage, "png", outputFile));
+            //Stego images are opaque TYPE_INT_ARGB, so the FX image shares their pixels
+            return Phase.measure("fx conversion", stegoTags, () -> FxRaster.of(stegoImage).image());
+        }, stegoImage -> {
+            view.getResultImageView().setImage(stegoImage);
             view.getStatusLabel().setText("Saved: " + outputFile.getName());
-        } catch (Exception ex) {
-            showAlert(Alert.AlertType.ERROR, "Embedding Failed",
-                    ex.getMessage() != null ? ex.getMessage() : "Unable to embed the message.");
-        }
+        }, "Embedding Failed", "Unable to embed the message.", choosersAndSubmit());
     }
 
-    //Converts the user's text or image input into the byte array
-    private byte[] prepareSecret() {
-        boolean hidingImage = "Image".equals(view.getSecretTypeChoice().getValue());
-        if (hidingImage) {
+    //Checks that the user gave a text, image or file secret
+    //Images and files are later passed through byte-for-byte from a memory-mapped read, without decoding
+    private boolean validateSecret() {
+        String secretType = view.getSecretTypeChoice().getValue();
+        if ("Image".equals(secretType) || "File".equals(secretType)) {
             if (selectedSecretFile == null) {
-                showAlert(Alert.AlertType.WARNING, "Secret Image Missing", "Please choose a secret image to embed.");
-                return null;
-            }
-            try {
-                BufferedImage secretImage = ImageIO.read(selectedSecretFile);
-                if (secretImage == null) {
-                    showAlert(Alert.AlertType.ERROR, "Image Error", "Could not read the secret image.");
-                    return null;
-                }
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(secretImage, "png", baos);
-                return baos.toByteArray();
-            } catch (IOException e) {
-                showAlert(Alert.AlertType.ERROR, "Image Error", "Failed to encode secret image: " + e.getMessage());
-                return null;
+                showAlert(Alert.AlertType.WARNING, "Secret " + secretType + " Missing",
+                        "Please choose a secret " + secretType.toLowerCase() + " to embed.");
+                return false;
             }
         } else {
             String text = view.getSecretTextArea().getText();
             if (text == null || text.isEmpty()) {
                 showAlert(Alert.AlertType.WARNING, "Message Missing", "Please enter a secret message to embed.");
-                return null;
+                return false;
             }
-            return text.getBytes(StandardCharsets.UTF_8);
         }
+        return true;
     }
 
     //Opens a save dialog for the output PNG
@@ -164,8 +192,9 @@ public class EmbeddingController extends BaseController {
     }
 
     private void handleClear() {
+        cancelRunningTask();
         Image defaultImage = view.loadDefaultImage();
-        selectedCoverFile = null;
+        selectedCover = null;
         selectedSecretFile = null;
         view.getCoverImageView().setImage(defaultImage);
         view.getResultImageView().setImage(defaultImage);
@@ -173,6 +202,7 @@ public class EmbeddingController extends BaseController {
         view.getSecretImageView().setImage(defaultImage);
         view.getSecretImageView().setVisible(false);
         view.getSecretImageView().setManaged(false);
+        view.getSecretFileLabel().setText("");
         view.getSecretTypeChoice().getSelectionModel().selectFirst();
         view.getAlgorithmChoice().getSelectionModel().selectFirst();
         view.getKeyField().clear();
@@ -1,14 +1,18 @@
 package com.example.seniorproject.controller;
 
 import com.example.seniorproject.model.ExtractingModel;
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
 import com.example.seniorproject.view.ExtractingView;
+import com.example.seniorproject.view.FxRaster;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import javax.imageio.ImageIO;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
@@ -19,7 +23,8 @@ import javafx.stage.Window;
 public class ExtractingController extends BaseController {
     private final ExtractingModel model;
     private final ExtractingView view;
-    private File selectedStegoFile;
+    private LoadedImage selectedStego;
+    private byte[] extractedSecret;
 
     public ExtractingController(ExtractingModel model, ExtractingView view) {
         this.model = model;
@@ -35,10 +40,11 @@ public class ExtractingController extends BaseController {
         view.getChooseButton().setOnAction(event -> openStegoChooser());
         view.getSubmitButton().setOnAction(event -> handleSubmit());
         view.getClearButton().setOnAction(event -> handleClear());
+        view.getSaveButton().setOnAction(event -> handleSave());
 
         //Only show the key field for algorithms that need one
         view.getAlgorithmChoice().getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            boolean needsKey = "Randomized LSB".equals(newVal) || "Josephus LSB 3-3-2".equals(newVal);
+            boolean needsKey = needsKey(newVal);
             view.getKeyBox().setVisible(needsKey);
             view.getKeyBox().setManaged(needsKey);
         });
@@ -54,55 +60,69 @@ public class ExtractingController extends BaseController {
 
         File file = fc.showOpenDialog(window);
         if (file != null) {
-            selectedStegoFile = file;
-            view.getImageView().setImage(new Image(file.toURI().toString()));
-            clearResults();
+            loadImage(view, file, loaded -> {
+                selectedStego = loaded;
+                view.getImageView().setImage(loaded.preview().image());
+                clearResults();
+            }, view.getSubmitButton(), view.getChooseButton());
         }
     }
 
-    //Validates inputs, extracts the secret and displays the result
+    //The extracted bytes plus the decoded hidden image, when the bytes are one
+    private record ExtractionResult(byte[] secret, Image hiddenImage) {}
+
+    //Validates inputs on the FX thread, then decodes and extracts on a background worker
     private void handleSubmit() {
-        if (selectedStegoFile == null) {
+        if (selectedStego == null) {
             showAlert(Alert.AlertType.WARNING, "Image Missing", "Please choose an image!");
             return;
         }
 
-        try {
-            BufferedImage stegoImage = ImageIO.read(selectedStegoFile);
-            if (stegoImage == null) {
-                showAlert(Alert.AlertType.ERROR, "Load Failed", "Could not read the image file.");
-                return;
-            }
-
-            String algorithm = view.getAlgorithmChoice().getValue();
-            int key = parseKey(algorithm, view.getKeyField());
-            if (key == Integer.MIN_VALUE) return;
-
-            byte[] secret = model.extract(stegoImage, algorithm, key);
-            displayResult(secret);
-
-        } catch (Exception ex) {
-            showAlert(Alert.AlertType.ERROR, "Extraction Failed",
-                    ex.getMessage() != null ? ex.getMessage() : "Unable to extract the secret.");
-        }
+        String algorithm = view.getAlgorithmChoice().getValue();
+        int key = parseKey(algorithm, view.getKeyField());
+        if (key == Integer.MIN_VALUE) return;
+
+        BufferedImage stegoImage = selectedStego.image();
+        File stegoFile = selectedStego.file();
+        runInBackground(view, context -> {
+            context.indeterminate();
+            PhaseTags tags = PhaseTags.of(algorithm, stegoImage, 0);
+            byte[] secret = model.extract(stegoFile, stegoImage, algorithm, key, context);
+
+            context.indeterminate();
+            PhaseTags secretTags = tags.withPayload(secret.length);
+            BufferedImage hiddenImage = ExtractingModel.isImageBytes(secret)
+                    ? Phase.measure("decode", secretTags, null, () -> ImageIO.read(new ByteArrayInputStream(secret))) : null;
+            Image preview = hiddenImage != null
+                    ? Phase.measure("fx conversion", secretTags, () -> FxRaster.of(hiddenImage).image()) : null;
+            return new ExtractionResult(secret, preview);
+        }, this::displayResult, "Extraction Failed", "Unable to extract the secret.",
+                view.getSubmitButton(), view.getChooseButton());
     }
 
-    //Shows the extracted secret as either an image or text
-    private void displayResult(byte[] secret) throws Exception {
+    //Shows the extracted secret as an image, as text, or as a binary summary that can be saved
+    private void displayResult(ExtractionResult result) {
+        byte[] secret = result.secret();
+        extractedSecret = secret;
         view.getSecretLabel().setVisible(true);
         view.getSecretLabel().setManaged(true);
+        view.getSaveButton().setVisible(secret.length > 0);
+        view.getSaveButton().setManaged(secret.length > 0);
 
-        if (ExtractingModel.isPngBytes(secret)) {
-            BufferedImage hiddenImage = ImageIO.read(new ByteArrayInputStream(secret));
-            if (hiddenImage == null) {
-                showAlert(Alert.AlertType.ERROR, "Decode Failed", "Could not decode the hidden image.");
-                return;
-            }
-            view.getExtractedImageView().setImage(SwingFXUtils.toFXImage(hiddenImage, null));
+        if (result.hiddenImage() != null) {
+            view.getExtractedImageView().setImage(result.hiddenImage());
             view.getExtractedImageView().setVisible(true);
             view.getExtractedImageView().setManaged(true);
             view.getExtractedTextArea().setVisible(false);
             view.getExtractedTextArea().setManaged(false);
+        } else if (ExtractingModel.isPngBytes(secret)) {
+            showAlert(Alert.AlertType.ERROR, "Decode Failed", "Could not decode the hidden image.");
+        } else if (!ExtractingModel.isUtf8Text(secret)) {
+            view.getExtractedTextArea().setText("Binary data (" + secret.length + " bytes) - use Save extracted data to write it to a file.");
+            view.getExtractedTextArea().setVisible(true);
+            view.getExtractedTextArea().setManaged(true);
+            view.getExtractedImageView().setVisible(false);
+            view.getExtractedImageView().setManaged(false);
         } else {
             String extracted = secret.length == 0 ? "" : new String(secret, StandardCharsets.UTF_8);
             view.getExtractedTextArea().setText(extracted);
@@ -116,8 +136,26 @@ public class ExtractingController extends BaseController {
         }
     }
 
+    //Writes the extracted bytes unchanged to a file of the user's choice
+    private void handleSave() {
+        if (extractedSecret == null) return;
+        Window window = view.getRoot().getScene() != null ? view.getRoot().getScene().getWindow() : null;
+        FileChooser fc = new FileChooser();
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fc.showSaveDialog(window);
+        if (file == null) return;
+        try {
+            Files.write(file.toPath(), extractedSecret);
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.ERROR, "Save Failed", "Could not save the extracted data: " + e.getMessage());
+        }
+    }
+
     //Hides the extracted text/image output
     private void clearResults() {
+        extractedSecret = null;
+        view.getSaveButton().setVisible(false);
+        view.getSaveButton().setManaged(false);
         view.getExtractedTextArea().clear();
         view.getExtractedTextArea().setVisible(false);
         view.getExtractedTextArea().setManaged(false);
@@ -129,8 +167,9 @@ public class ExtractingController extends BaseController {
     }
 
     private void handleClear() {
+        cancelRunningTask();
         Image defaultImage = view.loadDefaultImage();
-        selectedStegoFile = null;
+        selectedStego = null;
         view.getImageView().setImage(defaultImage);
         clearResults();
         view.getAlgorithmChoice().getSelectionModel().selectFirst();
@@ -0,0 +1,45 @@
+package com.example.seniorproject.model;
+
+import com.example.seniorproject.model.algorithm.JosephusLSB332Algorithm;
+import com.example.seniorproject.model.algorithm.JosephusLSB332V2Algorithm;
+import com.example.seniorproject.model.algorithm.KBitLSBAlgorithm;
+import com.example.seniorproject.model.algorithm.LSBAlgorithm;
+import com.example.seniorproject.model.algorithm.RandomizedLSBAlgorithm;
+import com.example.seniorproject.model.algorithm.SteganographyAlgorithm;
+
+import java.util.List;
+
+//Maps the algorithm names shown in the UI to algorithm instances
+public final class Algorithms {
+
+    public static final List<String> NAMES = List.of("LSB", "Randomized LSB", "Josephus LSB 3-3-2",
+            "Josephus LSB 3-3-2 v2", "2-bit LSB", "4-bit LSB", "4-bit LSB + alpha");
+
+    private Algorithms() {}
+
+    public static SteganographyAlgorithm byName(String algorithm, int key) {
+        if ("LSB".equals(algorithm)) {
+            return new LSBAlgorithm(true);
+        } else if ("Randomized LSB".equals(algorithm)) {
+            return new RandomizedLSBAlgorithm(key, true);
+        } else if ("Josephus LSB 3-3-2".equals(algorithm)) {
+            return new JosephusLSB332Algorithm(key);
+        } else if ("Josephus LSB 3-3-2 v2".equals(algorithm)) {
+            return new JosephusLSB332V2Algorithm(key);
+        } else if ("2-bit LSB".equals(algorithm)) {
+            return new KBitLSBAlgorithm(2, false);
+        } else if ("4-bit LSB".equals(algorithm)) {
+            return new KBitLSBAlgorithm(4, false);
+        } else if ("4-bit LSB + alpha".equals(algorithm)) {
+            return new KBitLSBAlgorithm(4, true);
+        }
+        throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+    }
+
+    //Algorithms that scatter data with an integer key
+    public static boolean needsKey(String algorithm) {
+        return "Randomized LSB".equals(algorithm)
+                || "Josephus LSB 3-3-2".equals(algorithm)
+                || "Josephus LSB 3-3-2 v2".equals(algorithm);
+    }
+}
@@ -1,65 +1,246 @@
 package com.example.seniorproject.model;
 
+import com.example.seniorproject.model.analysis.BitPlanes;
+import com.example.seniorproject.model.analysis.ByteHeatmap;
+import com.example.seniorproject.model.analysis.ChiSquareAttack;
+import com.example.seniorproject.model.analysis.DirtyRegions;
+import com.example.seniorproject.model.analysis.ModifiedPixelIndex;
+import com.example.seniorproject.model.analysis.ProgressiveComparison;
+import com.example.seniorproject.model.analysis.RsAnalysis;
+import com.example.seniorproject.model.analysis.Ssim;
+import com.example.seniorproject.model.analysis.TiledComparison;
+
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
 
 //Image analysis 
 public class AnalyzingModel {
 
     private static final int HEATMAP_AMPLIFICATION = 50;
 
-    public record HeatmapResult(BufferedImage image, int modifiedPixels) {}
-
-    //LSB of each channel to full brightness
-    public BufferedImage lsbXray(BufferedImage source) {
-        int w = source.getWidth(), h = source.getHeight();
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int rgb = source.getRGB(x, y);
-                int r = ((rgb >> 16) & 0x01) * 255;
-                int g = ((rgb >>  8) & 0x01) * 255;
-                int b = (rgb & 0x01) * 255;
-                out.setRGB(x, y, (r << 16) | (g << 8) | b);
-            }
-        }
-        return out;
+    public record HeatmapResult(ByteHeatmap image, int modifiedPixels) {}
+
+    //Everything computed from an original / stego pair, as kept in the result cache
+    public record Comparison(ByteHeatmap heatmap, double mse, int modifiedTiles, int tiles, Ssim.Result similarity) {}
+
+    //Blind steganalysis of a stego image, as kept in the result cache
+    public record Steganalysis(ChiSquareAttack.Result chi, RsAnalysis.Result rs) {}
+
+    private final ResultCache cache;
+    //Tiled comparison of the last analysis and the original file it was against, for the next incremental one
+    private DecodedImageCache.Key lastTiledOriginal;
+    private TiledComparison lastTiled;
+
+    public AnalyzingModel() {
+        this(ResultCache.shared());
+    }
+
+    //cache may be null to always compute
+    public AnalyzingModel(ResultCache cache) {
+        this.cache = cache;
+    }
+
+    //All 8 bit planes of every channel in one pass, for X-rays of any plane
+    public BitPlanes bitPlanes(BufferedImage source) {
+        return BitPlanes.of(source);
+    }
+
+    //Rows and rectangles where the two images differ; share one between the heatmap and MSE to scan only once
+    public DirtyRegions dirtyRegions(BufferedImage original, BufferedImage stego) {
+        return DirtyRegions.of(original, stego);
     }
 
-    //Highlights pixel differences between the original and stego images
+    //Highlights pixel differences between the original and stego images, one byte per pixel
     public HeatmapResult differenceHeatmap(BufferedImage original, BufferedImage stego) {
-        int w = stego.getWidth(), h = stego.getHeight();
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        int modified = 0;
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int oRgb = original.getRGB(x, y);
-                int sRgb = stego.getRGB(x, y);
-                int r = Math.min(Math.abs(((oRgb >> 16) & 0xFF) - ((sRgb >> 16) & 0xFF)) * HEATMAP_AMPLIFICATION, 255);
-                int g = Math.min(Math.abs(((oRgb >> 8) & 0xFF) - ((sRgb >> 8) & 0xFF)) * HEATMAP_AMPLIFICATION, 255);
-                int b = Math.min(Math.abs((oRgb & 0xFF) - (sRgb & 0xFF)) * HEATMAP_AMPLIFICATION, 255);
-                if (r != 0 || g != 0 || b != 0) modified++;
-                out.setRGB(x, y, (r << 16) | (g << 8) | b);
-            }
+        return differenceHeatmap(dirtyRegions(original, stego));
+    }
+
+    public HeatmapResult differenceHeatmap(DirtyRegions regions) {
+        ByteHeatmap heatmap = ByteHeatmap.of(regions, HEATMAP_AMPLIFICATION);
+        return new HeatmapResult(heatmap, heatmap.modifiedPixels());
+    }
+
+    //Compressed set of modified pixel positions, cheap to keep and query across many analyses
+    public ModifiedPixelIndex modifiedPixelIndex(DirtyRegions regions) {
+        return ModifiedPixelIndex.of(regions);
+    }
+
+    //Comparison that redoes only the tiles that changed since the last stego image compared against the same original
+    //The last one is kept in memory with its bit planes; the result cache, when on, carries it to the next session
+    public TiledComparison tiledComparison(File originalFile, BufferedImage original, BufferedImage stego) {
+        DecodedImageCache.Key key = originalFile != null ? DecodedImageCache.Key.of(originalFile) : null;
+        TiledComparison previous;
+        synchronized (this) {
+            previous = key != null && key.equals(lastTiledOriginal) ? lastTiled : null;
+        }
+        if (previous == null) previous = cachedTiles(originalFile);
+
+        TiledComparison result = TiledComparison.of(original, stego, HEATMAP_AMPLIFICATION, previous);
+        synchronized (this) {
+            lastTiledOriginal = key;
+            lastTiled = result;
+        }
+        store("tiles", tilesParameters(), result::writeTo, originalFile);
+        return result;
+    }
+
+    private TiledComparison cachedTiles(File originalFile) {
+        byte[] bytes = lookup("tiles", tilesParameters(), originalFile);
+        if (bytes == null) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return TiledComparison.readFrom(in);
+        } catch (IOException e) {
+            return null;
         }
-        return new HeatmapResult(out, modified);
+    }
+
+    private static String tilesParameters() {
+        return "v2;amplification=" + HEATMAP_AMPLIFICATION + ";tile=" + TiledComparison.TILE;
+    }
+
+    //Sampled comparison for triage: call refine() for each coarse-to-fine pass, the last one is exact
+    public ProgressiveComparison progressiveComparison(BufferedImage original, BufferedImage stego) {
+        return new ProgressiveComparison(original, stego, HEATMAP_AMPLIFICATION, ThreadLocalRandom.current().nextLong());
     }
 
     //MSE - average squared difference per channel across all pixels
     public double calculateMse(BufferedImage original, BufferedImage stego) {
-        int w = original.getWidth(), h = original.getHeight();
-        long mseSum = 0;
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int oRgb = original.getRGB(x, y);
-                int sRgb = stego.getRGB(x, y);
-                for (int shift : new int[]{16, 8, 0}) {
-                    int diff = ((oRgb >> shift) & 0xFF) - ((sRgb >> shift) & 0xFF);
-                    mseSum += (long) diff * diff;
+        return calculateMse(dirtyRegions(original, stego));
+    }
+
+    //Identical rows add nothing to the sum, so only the differing spans are visited
+    public double calculateMse(DirtyRegions regions) {
+        long mseSum = regions.sum((y, x0, x1, o, s, offset) -> {
+            long rowSum = 0;
+            for (int x = offset + x0; x <= offset + x1; x++) {
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int diff = ((o[x] >> shift) & 0xFF) - ((s[x] >> shift) & 0xFF);
+                    rowSum += diff * diff;
                 }
             }
+            return rowSum;
+        });
+        return mseSum / ((double) regions.width() * regions.height() * 3);
+    }
+
+    //SSIM and MS-SSIM on luma - closer to what a viewer notices than MSE
+    public Ssim.Result structuralSimilarity(BufferedImage original, BufferedImage stego) {
+        return Ssim.compare(original, stego);
+    }
+
+    //Same, from the rows of a DirtyRegions scan already made for the heatmap, MSE or modified-pixel index
+    public Ssim.Result structuralSimilarity(DirtyRegions regions) {
+        return Ssim.compare(regions);
+    }
+
+    //Blind chi-square attack - needs only the stego image
+    public ChiSquareAttack.Result chiSquare(BufferedImage stego) {
+        return ChiSquareAttack.analyze(stego);
+    }
+
+    //Blind RS analysis - estimated share of pixels whose LSB carries data
+    public RsAnalysis.Result rsAnalysis(BufferedImage stego) {
+        return RsAnalysis.analyze(stego);
+    }
+
+    //Stored comparison of the two files for this tile size, or null on a miss or when caching is off
+    public Comparison cachedComparison(File original, File stego, int tile) {
+        byte[] bytes = lookup("comparison", comparisonParameters(tile), original, stego);
+        if (bytes == null) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            ByteHeatmap heatmap = ByteHeatmap.readFrom(in);
+            double mse = in.readDouble();
+            int modifiedTiles = in.readInt(), tiles = in.readInt();
+            Ssim.Result similarity = new Ssim.Result(in.readDouble(), in.readDouble(), in.readInt());
+            return new Comparison(heatmap, mse, modifiedTiles, tiles, similarity);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void storeComparison(File original, File stego, int tile, Comparison comparison) {
+        store("comparison", comparisonParameters(tile), out -> {
+            comparison.heatmap().writeTo(out);
+            out.writeDouble(comparison.mse());
+            out.writeInt(comparison.modifiedTiles());
+            out.writeInt(comparison.tiles());
+            out.writeDouble(comparison.similarity().ssim());
+            out.writeDouble(comparison.similarity().msSsim());
+            out.writeInt(comparison.similarity().scales());
+        }, original, stego);
+    }
+
+    public Steganalysis cachedSteganalysis(File stego) {
+        byte[] bytes = lookup("steganalysis", "v1", stego);
+        if (bytes == null) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            ChiSquareAttack.Result chi = new ChiSquareAttack.Result(in.readDouble(), in.readDouble(), readDoubles(in));
+            RsAnalysis.Result rs = new RsAnalysis.Result(in.readDouble(), readDoubles(in), in.readLong());
+            return new Steganalysis(chi, rs);
+        } catch (IOException e) {
+            return null;
         }
-        return mseSum / (double)(w * h * 3);
+    }
+
+    public void storeSteganalysis(File stego, Steganalysis result) {
+        store("steganalysis", "v1", out -> {
+            out.writeDouble(result.chi().pValue());
+            out.writeDouble(result.chi().estimatedRate());
+            writeDoubles(out, result.chi().windowPValues());
+            out.writeDouble(result.rs().rate());
+            writeDoubles(out, result.rs().channelRates());
+            out.writeLong(result.rs().groups());
+        }, stego);
+    }
+
+    private static String comparisonParameters(int tile) {
+        return "v2;amplification=" + HEATMAP_AMPLIFICATION + ";tile=" + tile + ";window=" + Ssim.WINDOW;
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    //Null whenever the cache is off, the files cannot be hashed or there is no entry
+    private byte[] lookup(String operation, String parameters, File... inputs) {
+        if (cache == null || inputs[0] == null) return null;
+        try {
+            return cache.get(cache.key(operation, parameters, inputs));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void store(String operation, String parameters, Encoder encoder, File... inputs) {
+        if (cache == null || inputs[0] == null) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                encoder.write(out);
+            }
+            cache.put(cache.key(operation, parameters, inputs), bytes.toByteArray());
+        } catch (IOException e) {
+            //Caching is best effort; the result is still returned to the caller
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double v : values) out.writeDouble(v);
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available() / Double.BYTES) throw new IOException("Invalid array length " + length + ".");
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) values[i] = in.readDouble();
+        return values;
     }
 
     //PSNR - measures how close the stego image is to the original
@@ -0,0 +1,100 @@
+package com.example.seniorproject.model;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+//Writes batch rows as CSV or JSON Lines, one line per pair, flushed as it is written so a long batch can be followed
+public final class BatchReport implements BatchAnalysis.RowSink, Closeable {
+
+    public enum Format {
+        CSV, JSONL;
+
+        //JSONL for .jsonl / .json files, CSV otherwise
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private static final String[] COLUMNS = {"key", "original", "stego", "width", "height", "modified_pixels",
+            "mse", "psnr", "decode_ms", "compare_ms", "total_ms", "error"};
+
+    private final Writer out;
+    private final Format format;
+
+    public BatchReport(Writer out, Format format) throws IOException {
+        this.out = out;
+        this.format = format;
+        if (format == Format.CSV) {
+            out.write(String.join(",", COLUMNS) + "\n");
+            out.flush();
+        }
+    }
+
+    public static BatchReport open(Path file, Format format) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        return new BatchReport(writer, format);
+    }
+
+    @Override
+    public synchronized void accept(BatchAnalysis.Row row) throws IOException {
+        Object[] values = {row.key(), row.original(), row.stego(), row.width(), row.height(), row.modifiedPixels(),
+                row.mse(), row.psnr(), row.decodeMs(), row.compareMs(), row.totalMs(), row.error()};
+        StringBuilder line = new StringBuilder();
+        if (format == Format.JSONL) line.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) line.append(',');
+            if (format == Format.JSONL) line.append(jsonString(COLUMNS[i])).append(':').append(json(values[i]));
+            else line.append(csv(values[i]));
+        }
+        if (format == Format.JSONL) line.append('}');
+        out.write(line.append('\n').toString());
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    //Empty for missing values; quoted only when the text needs it
+    private static String csv(Object value) {
+        if (value == null) return "";
+        if (value instanceof Double d) return Double.isFinite(d) ? Double.toString(d) : d.isNaN() ? "" : "inf";
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    //JSON has no infinity or NaN: PSNR of identical images is written as the string "inf", missing values as null
+    private static String json(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Double d) return Double.isFinite(d) ? Double.toString(d) : d.isNaN() ? "null" : "\"inf\"";
+        if (value instanceof Number) return value.toString();
+        return jsonString(value.toString());
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.seniorproject.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/*
+ Optional wrapper around a secret that lets any byte range be verified without reading the rest
+ The secret is cut into fixed-size chunks and each gets a CRC-32C. The wrapped payload is
+   magic (8 bytes) | version | chunk size | secret length | CRC-32C of these header fields | chunk CRCs | secret
+ and is embedded by any algorithm like any other secret. Reading a range then reads the header, the CRCs of the
+ chunks that overlap the range and those chunks, and checks each chunk on its own. The algorithm's own checksum
+ still covers the whole payload when everything is extracted.
+*/
+public final class ChunkedPayload {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    //PNG-style signature: high bit set, line endings and a DOS EOF, so text never matches by accident
+    private static final byte[] MAGIC = {(byte) 0x89, 'S', 'C', 'H', 'K', '\r', '\n', 0x1A};
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 1 + 4 + 4 + 4;
+    private static final int CRC_BYTES = 4;
+
+    //Reads bytes offset until offset + length of the embedded payload
+    @FunctionalInterface
+    public interface RangeReader {
+        byte[] read(int offset, int length);
+    }
+
+    private record Header(int chunkSize, int length) {
+        int chunks() {
+            return (int) (((long) length + chunkSize - 1) / chunkSize);
+        }
+
+        int dataOffset() {
+            return HEADER_BYTES + chunks() * CRC_BYTES;
+        }
+    }
+
+    private ChunkedPayload() {}
+
+    public static byte[] wrap(byte[] secret, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+        Header header = new Header(chunkSize, secret.length);
+        long total = HEADER_BYTES + (long) header.chunks() * CRC_BYTES + secret.length;
+        if (total > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Secret is too large to wrap");
+
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        out.put(headerBytes(header));
+        CRC32C crc = new CRC32C();
+        for (int c = 0; c < header.chunks(); c++) {
+            crc.reset();
+            crc.update(secret, c * chunkSize, Math.min(chunkSize, secret.length - c * chunkSize));
+            out.putInt((int) crc.getValue());
+        }
+        out.put(secret);
+        return out.array();
+    }
+
+    //True when the payload is a valid chunked header followed by as many bytes as it announces
+    public static boolean isWrapped(byte[] payload) {
+        if (payload == null) return false;
+        Header header = parseHeader(payload);
+        return header != null && (long) header.dataOffset() + header.length() == payload.length;
+    }
+
+    //The secret inside a wrapped payload, every chunk checked
+    public static byte[] unwrap(byte[] payload) {
+        Header header = parseHeader(payload);
+        if (header == null || (long) header.dataOffset() + header.length() != payload.length) {
+            throw new IllegalStateException("Not a chunked payload");
+        }
+        byte[] secret = Arrays.copyOfRange(payload, header.dataOffset(), payload.length);
+        verify(header, 0, Arrays.copyOfRange(payload, HEADER_BYTES, header.dataOffset()), secret);
+        return secret;
+    }
+
+    //True when the payload behind the reader starts with a valid chunked header
+    public static boolean isWrapped(RangeReader reader) {
+        try {
+            return parseHeader(reader.read(0, HEADER_BYTES)) != null;
+        } catch (IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    //Bytes offset until offset + length of the secret, reading and checking only the chunks that overlap them
+    public static byte[] readRange(RangeReader reader, int offset, int length) {
+        Header header = readHeader(reader);
+        Objects.checkFromIndexSize(offset, length, header.length());
+        if (length == 0) return new byte[0];
+
+        int firstChunk = offset / header.chunkSize(), lastChunk = (offset + length - 1) / header.chunkSize();
+        byte[] crcs = reader.read(HEADER_BYTES + firstChunk * CRC_BYTES, (lastChunk - firstChunk + 1) * CRC_BYTES);
+        int start = firstChunk * header.chunkSize();
+        int end = (int) Math.min(header.length(), (long) (lastChunk + 1) * header.chunkSize());
+        byte[] chunks = reader.read(header.dataOffset() + start, end - start);
+        verify(header, firstChunk, crcs, chunks);
+        return Arrays.copyOfRange(chunks, offset - start, offset - start + length);
+    }
+
+    private static Header readHeader(RangeReader reader) {
+        Header header = parseHeader(reader.read(0, HEADER_BYTES));
+        if (header == null) throw new IllegalStateException("Not a chunked payload");
+        return header;
+    }
+
+    //Checks consecutive chunks starting at firstChunk against their stored CRCs
+    private static void verify(Header header, int firstChunk, byte[] crcs, byte[] chunks) {
+        ByteBuffer stored = ByteBuffer.wrap(crcs);
+        CRC32C crc = new CRC32C();
+        for (int pos = 0, c = firstChunk; pos < chunks.length; pos += header.chunkSize(), c++) {
+            crc.reset();
+            crc.update(chunks, pos, Math.min(header.chunkSize(), chunks.length - pos));
+            if ((int) crc.getValue() != stored.getInt()) {
+                throw new IllegalStateException("Checksum mismatch in chunk " + c + ": data may be corrupted");
+            }
+        }
+    }
+
+    private static byte[] headerBytes(Header header) {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES);
+        out.put(MAGIC).put(VERSION).putInt(header.chunkSize()).putInt(header.length());
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), 0, HEADER_BYTES - CRC_BYTES);
+        out.putInt((int) crc.getValue());
+        return out.array();
+    }
+
+    //Null unless magic, version and header checksum all match
+    private static Header parseHeader(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) return null;
+        ByteBuffer in = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_BYTES - MAGIC.length);
+        byte version = in.get();
+        int chunkSize = in.getInt(), length = in.getInt(), storedCrc = in.getInt();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, HEADER_BYTES - CRC_BYTES);
+        if (version != VERSION || chunkSize <= 0 || length < 0 || (int) crc.getValue() != storedCrc) return null;
+        Header header = new Header(chunkSize, length);
+        if (HEADER_BYTES + (long) header.chunks() * CRC_BYTES + length > Integer.MAX_VALUE) return null;
+        return header;
+    }
+}
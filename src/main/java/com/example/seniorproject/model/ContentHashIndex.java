@@ -0,0 +1,93 @@
+package com.example.seniorproject.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/*
+ SHA-256 of file contents, remembered in a properties file per path, mtime and size so unchanged files are hashed once
+ A new hash is appended to the file as one line, so hashing N files writes N lines rather than N copies of the index.
+ The file is only rewritten in full when entries are dropped, once per eviction.
+*/
+final class ContentHashIndex {
+
+    //Bytes read from the file per channel read while hashing
+    private static final int HASH_CHUNK = 1 << 20;
+    private static final String COMMENT = "path|mtime|size = sha-256 of the file";
+
+    private final Path indexFile;
+    private final Properties index = new Properties();
+
+    ContentHashIndex(Path indexFile) throws IOException {
+        this.indexFile = indexFile;
+        if (Files.exists(indexFile)) {
+            try (InputStream in = Files.newInputStream(indexFile)) {
+                index.load(in);
+            }
+        }
+    }
+
+    String hash(File file) throws IOException {
+        String key = file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length();
+        synchronized (this) {
+            String known = index.getProperty(key);
+            if (known != null) return known;
+        }
+
+        //Read, not mapped: a live mapping would keep the file locked on Windows until it is garbage collected
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_CHUNK);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        synchronized (this) {
+            if (index.setProperty(key, hash) == null) append(key, hash);
+        }
+        return hash;
+    }
+
+    //Drops every entry pointing at one of these hashes and rewrites the file once
+    synchronized void forget(Collection<String> hashes) throws IOException {
+        if (!index.values().removeAll(hashes)) return;
+        try (OutputStream out = Files.newOutputStream(indexFile)) {
+            index.store(out, COMMENT);
+        }
+    }
+
+    //One entry in properties syntax; Properties.store escapes it, its date comment is left out
+    private void append(String key, String hash) throws IOException {
+        Properties entry = new Properties();
+        entry.setProperty(key, hash);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        entry.store(bytes, null);
+        String line = bytes.toString(StandardCharsets.ISO_8859_1).lines()
+                .filter(l -> !l.startsWith("#")).findFirst().orElseThrow() + System.lineSeparator();
+        Files.writeString(indexFile, line, StandardCharsets.ISO_8859_1,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
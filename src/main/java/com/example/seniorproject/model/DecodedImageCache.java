@@ -0,0 +1,157 @@
+package com.example.seniorproject.model;
+
+import com.example.seniorproject.model.metrics.MetricsRegistry;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/*
+ Process-wide cache of decoded images, shared by every tab
+ Entries are keyed by path, modification time and size, so an edited file is decoded again. Images are held strongly
+ up to a byte budget, least recently used first out; evicted images drop to soft references, which the GC clears only
+ under memory pressure, so an image evicted a moment ago can still come back without decoding.
+ Misses go to the optional on-disk RawPixelCache before decoding, and freshly decoded images are written back to it.
+ Cached images are shared between callers and must not be modified - every algorithm copies its cover first.
+*/
+public final class DecodedImageCache {
+
+    private static final DecodedImageCache SHARED = new DecodedImageCache(
+            Runtime.getRuntime().maxMemory() / 4, RawPixelCache.fromSystemProperties());
+
+    public record Key(String path, long lastModified, long size) {
+        public static Key of(File file) {
+            return new Key(file.getAbsolutePath(), file.lastModified(), file.length());
+        }
+    }
+
+    private final long budgetBytes;
+    //Second tier on disk, or null when switched off
+    private final RawPixelCache disk;
+    private final LinkedHashMap<Key, BufferedImage> strong = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, SoftReference<BufferedImage>> soft = new HashMap<>();
+    private long strongBytes;
+
+    public DecodedImageCache(long budgetBytes) {
+        this(budgetBytes, null);
+    }
+
+    public DecodedImageCache(long budgetBytes, RawPixelCache disk) {
+        this.budgetBytes = budgetBytes;
+        this.disk = disk;
+    }
+
+    public static DecodedImageCache shared() {
+        return SHARED;
+    }
+
+    //Decoded TYPE_INT_ARGB pixels of the file, from the cache when its path, mtime and size still match
+    public BufferedImage load(File file) throws IOException {
+        Key key = Key.of(file);
+        BufferedImage cached = get(key);
+        if (cached != null) return cached;
+
+        MetricsRegistry.global().counter("image cache.misses").increment();
+        BufferedImage image = loadFromDisk(file);
+        if (image == null) {
+            BufferedImage decoded = ImageIO.read(file);
+            if (decoded == null) {
+                throw new IOException("Could not read " + file.getName() + ".");
+            }
+            image = toIntArgb(decoded);
+            storeToDisk(file, image);
+        }
+        put(key, image);
+        return image;
+    }
+
+    //The disk tier is only a shortcut: any failure in it counts as a miss and the file is decoded as usual
+    private BufferedImage loadFromDisk(File file) {
+        if (disk == null) return null;
+        try {
+            return disk.load(file);
+        } catch (IOException | RuntimeException e) {
+            MetricsRegistry.global().counter("pixel cache.failures").increment();
+            return null;
+        }
+    }
+
+    private void storeToDisk(File file, BufferedImage image) {
+        if (disk == null) return;
+        try {
+            disk.store(file, image);
+        } catch (IOException | RuntimeException e) {
+            MetricsRegistry.global().counter("pixel cache.failures").increment();
+        }
+    }
+
+    public synchronized BufferedImage get(Key key) {
+        BufferedImage image = strong.get(key);
+        if (image != null) {
+            MetricsRegistry.global().counter("image cache.hits").increment();
+            return image;
+        }
+        SoftReference<BufferedImage> ref = soft.remove(key);
+        image = ref != null ? ref.get() : null;
+        if (image != null) {
+            //Still alive after eviction: promote it back to the strong LRU
+            MetricsRegistry.global().counter("image cache.soft hits").increment();
+            put(key, image);
+        }
+        return image;
+    }
+
+    public synchronized void put(Key key, BufferedImage image) {
+        BufferedImage previous = strong.put(key, image);
+        if (previous != null) strongBytes -= weight(previous);
+        strongBytes += weight(image);
+        soft.remove(key);
+        evict();
+    }
+
+    //Oldest entries move to soft references until the strong set fits the budget; the newest always stays
+    private void evict() {
+        Iterator<Map.Entry<Key, BufferedImage>> it = strong.entrySet().iterator();
+        while (strongBytes > budgetBytes && strong.size() > 1 && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = it.next();
+            strongBytes -= weight(eldest.getValue());
+            soft.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+            it.remove();
+        }
+        soft.values().removeIf(ref -> ref.get() == null);
+    }
+
+    //Bytes held strongly
+    public synchronized long strongBytes() {
+        return strongBytes;
+    }
+
+    public synchronized int strongCount() {
+        return strong.size();
+    }
+
+    public synchronized void clear() {
+        strong.clear();
+        soft.clear();
+        strongBytes = 0;
+    }
+
+    private static long weight(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    //The same pixels as TYPE_INT_ARGB, which the algorithms read and the FX bridge can share without a copy
+    public static BufferedImage toIntArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) return image;
+        int w = image.getWidth(), h = image.getHeight();
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        out.setRGB(0, 0, w, h, image.getRGB(0, 0, w, h, null, 0, w), 0, w);
+        return out;
+    }
+}
@@ -1,22 +1,57 @@
 package com.example.seniorproject.model;
 
-import com.example.seniorproject.model.algorithm.JosephusLSB332Algorithm;
-import com.example.seniorproject.model.algorithm.LSBAlgorithm;
-import com.example.seniorproject.model.algorithm.RandomizedLSBAlgorithm;
+import com.example.seniorproject.model.algorithm.ExecutionContext;
+import com.example.seniorproject.model.algorithm.MultiPayloadEmbedder;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 //Embedding to the chosen steganography algorithm
 public class EmbeddingModel {
 
+    //One of several secrets sharing a cover, each extractable with its own algorithm and key
+    public record KeyedSecret(String algorithm, int key, byte[] secret) {}
+
     public BufferedImage embed(BufferedImage coverImage, byte[] secret, String algorithm, int key) {
-        if ("LSB".equals(algorithm)) {
-            return new LSBAlgorithm().embed(coverImage, secret);
-        } else if ("Randomized LSB".equals(algorithm)) {
-            return new RandomizedLSBAlgorithm(key).embed(coverImage, secret);
-        } else if ("Josephus LSB 3-3-2".equals(algorithm)) {
-            return new JosephusLSB332Algorithm(key).embed(coverImage, secret);
+        return embed(coverImage, secret, algorithm, key, ExecutionContext.NONE);
+    }
+
+    //Same as above, reporting progress to and honouring cancellation from the context
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, String algorithm, int key,
+                               ExecutionContext context) {
+        return Algorithms.byName(algorithm, key).embed(coverImage, secret, context);
+    }
+
+    //Same as above, with the secret wrapped in per-chunk checksums so any range of it can be extracted and verified alone
+    public BufferedImage embedChunked(BufferedImage coverImage, byte[] secret, String algorithm, int key,
+                                      ExecutionContext context) {
+        return embed(coverImage, ChunkedPayload.wrap(secret, ChunkedPayload.DEFAULT_CHUNK_SIZE), algorithm, key, context);
+    }
+
+    //Several secrets in one copy of the cover, written in one pass; throws if two of them need the same bits
+    public BufferedImage embedAll(BufferedImage coverImage, List<KeyedSecret> secrets, ExecutionContext context) {
+        List<MultiPayloadEmbedder.Payload> payloads = secrets.stream()
+                .map(s -> new MultiPayloadEmbedder.Payload(Algorithms.byName(s.algorithm(), s.key()), s.secret()))
+                .toList();
+        return MultiPayloadEmbedder.embed(coverImage, payloads, context);
+    }
+
+    //Reads a secret file byte-for-byte through a read-only memory map - no decoding or re-encoding, any file type
+    public byte[] readSecretFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Secret file is too large: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] secret = new byte[(int) size];
+            mapped.get(secret);
+            return secret;
         }
-        throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
     }
 }
@@ -1,23 +1,69 @@
 package com.example.seniorproject.model;
 
-import com.example.seniorproject.model.algorithm.JosephusLSB332Algorithm;
-import com.example.seniorproject.model.algorithm.LSBAlgorithm;
-import com.example.seniorproject.model.algorithm.RandomizedLSBAlgorithm;
+import com.example.seniorproject.model.algorithm.ExecutionContext;
+import com.example.seniorproject.model.algorithm.SteganographyAlgorithm;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 //Extraction to the chosen steganography algorithm
 public class ExtractingModel {
 
+    private final ResultCache cache;
+
+    public ExtractingModel() {
+        this(ResultCache.shared());
+    }
+
+    //cache may be null to always extract
+    public ExtractingModel(ResultCache cache) {
+        this.cache = cache;
+    }
+
     public byte[] extract(BufferedImage stegoImage, String algorithm, int key) {
-        if ("LSB".equals(algorithm)) {
-            return new LSBAlgorithm().extract(stegoImage);
-        } else if ("Randomized LSB".equals(algorithm)) {
-            return new RandomizedLSBAlgorithm(key).extract(stegoImage);
-        } else if ("Josephus LSB 3-3-2".equals(algorithm)) {
-            return new JosephusLSB332Algorithm(key).extract(stegoImage);
+        return extract(stegoImage, algorithm, key, ExecutionContext.NONE);
+    }
+
+    //Same as above, reporting progress to and honouring cancellation from the context
+    //A secret embedded with chunked integrity is checked chunk by chunk and returned without its wrapper
+    public byte[] extract(BufferedImage stegoImage, String algorithm, int key, ExecutionContext context) {
+        byte[] payload = Algorithms.byName(algorithm, key).extract(stegoImage, context);
+        return ChunkedPayload.isWrapped(payload) ? ChunkedPayload.unwrap(payload) : payload;
+    }
+
+    //Bytes offset until offset + length of the secret, reading only the slots that hold them where the algorithm allows
+    //With chunked integrity the chunks covering the range are verified; otherwise the range is returned unchecked,
+    //as the algorithm's checksum covers the whole payload
+    public byte[] extractRange(BufferedImage stegoImage, String algorithm, int key, int offset, int length,
+                               ExecutionContext context) {
+        SteganographyAlgorithm steganography = Algorithms.byName(algorithm, key);
+        //One reader for every read of this call, so a full extraction or a slot order is made once
+        ChunkedPayload.RangeReader reader = steganography.payloadReader(stegoImage, context)::read;
+        if (ChunkedPayload.isWrapped(reader)) return ChunkedPayload.readRange(reader, offset, length);
+        return reader.read(offset, length);
+    }
+
+    //Same as above, answered from the result cache when this file was already extracted with the same algorithm and key
+    //The key goes into the entry key only as a salted PBKDF2; the entry itself holds the extracted secret, written to disk
+    public byte[] extract(File stegoFile, BufferedImage stegoImage, String algorithm, int key, ExecutionContext context) {
+        String cacheKey = null;
+        if (cache != null && stegoFile != null) {
+            try {
+                cacheKey = cache.key("extract", "v1;algorithm=" + algorithm + ";key=" + cache.secretDigest(Integer.toString(key)), stegoFile);
+                byte[] cached = cache.get(cacheKey);
+                if (cached != null) return cached;
+            } catch (IOException e) {
+                cacheKey = null;
+            }
         }
-        throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        byte[] secret = extract(stegoImage, algorithm, key, context);
+        if (cacheKey != null) cache.put(cacheKey, secret);
+        return secret;
     }
 
     //Checks if the extracted bytes are a PNG file based on the magic header
@@ -32,4 +78,27 @@ public class ExtractingModel {
                 && bytes[6] == 0x1A
                 && bytes[7] == 0x0A;
     }
+
+    //Checks for the image formats that can be shown directly - PNG, JPEG and GIF
+    public static boolean isImageBytes(byte[] bytes) {
+        if (isPngBytes(bytes)) return true;
+        if (bytes == null || bytes.length < 4) return false;
+        boolean jpeg = (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF;
+        boolean gif = bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8';
+        return jpeg || gif;
+    }
+
+    //True when the bytes decode as UTF-8 without errors, so they can be shown as text
+    public static boolean isUtf8Text(byte[] bytes) {
+        if (bytes == null) return false;
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.seniorproject.model;
+
+import com.example.seniorproject.model.metrics.MetricsRegistry;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ Optional on-disk cache of decoded pixels, so large PNGs are inflated once across sessions
+ Each image is stored as <sha-256 of the PNG>.argb: a 16-byte header (magic, version, width, height) followed by the
+ TYPE_INT_ARGB pixels in little-endian order. Files are read and written through a FileChannel in 1 MB chunks
+ straight to and from the image's int array; they are not mapped, since Windows refuses to delete or replace a file
+ while a mapping of it is still waiting for garbage collection.
+ Keying by content means a renamed or copied file still hits. An index from path, mtime and size to the hash skips
+ re-hashing files that have not changed. When the directory grows past its byte limit, the least recently used
+ files are deleted.
+ Off unless -Dseniorproject.pixelCache.dir is set; -Dseniorproject.pixelCache.maxBytes sets the limit (default 4 GB).
+*/
+public final class RawPixelCache {
+
+    public static final String DIR_PROPERTY = "seniorproject.pixelCache.dir";
+    public static final String MAX_BYTES_PROPERTY = "seniorproject.pixelCache.maxBytes";
+    private static final long DEFAULT_MAX_BYTES = 4L << 30;
+
+    private static final int MAGIC = 0x41524742; //"ARGB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".argb";
+    private static final String INDEX_FILE = "index.properties";
+    //Bytes moved per channel read or write
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final ContentHashIndex hashes;
+
+    public RawPixelCache(Path dir, long maxBytes) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        this.hashes = new ContentHashIndex(dir.resolve(INDEX_FILE));
+    }
+
+    //The cache configured by system properties, or null when it is switched off or the directory is unusable
+    public static RawPixelCache fromSystemProperties() {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) return null;
+        try {
+            return new RawPixelCache(Path.of(dir), Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    //Cached pixels of the file, or null on a miss
+    public BufferedImage load(File file) throws IOException {
+        Path raw = dir.resolve(contentHash(file) + SUFFIX);
+        if (!Files.exists(raw)) {
+            MetricsRegistry.global().counter("pixel cache.misses").increment();
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(raw, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, header)) return null;
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+            int w = header.getInt(), h = header.getInt();
+            if (w <= 0 || h <= 0 || (long) w * h > Integer.MAX_VALUE
+                    || (long) w * h * Integer.BYTES + HEADER_BYTES != channel.size()) {
+                return null;
+            }
+
+            BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int done = 0; done < pixels.length; ) {
+                int count = Math.min(pixels.length - done, CHUNK_BYTES / Integer.BYTES);
+                chunk.clear().limit(count * Integer.BYTES);
+                if (!readFully(channel, chunk)) return null;
+                chunk.asIntBuffer().get(pixels, done, count);
+                done += count;
+            }
+            //The mtime doubles as the last-use time for eviction
+            Files.setLastModifiedTime(raw, FileTime.fromMillis(System.currentTimeMillis()));
+            MetricsRegistry.global().counter("pixel cache.hits").increment();
+            return image;
+        }
+    }
+
+    //Writes the decoded pixels for the file, then trims the directory to its limit
+    public void store(File file, BufferedImage image) throws IOException {
+        int w = image.getWidth(), h = image.getHeight();
+        long size = HEADER_BYTES + (long) w * h * Integer.BYTES;
+        if (size > maxBytes) return;
+
+        Path raw = dir.resolve(contentHash(file) + SUFFIX);
+        if (Files.exists(raw)) return;
+        Path tmp = Files.createTempFile(dir, "store", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                chunk.putInt(MAGIC).putInt(VERSION).putInt(w).putInt(h);
+                BufferedImage argb = DecodedImageCache.toIntArgb(image);
+                int[] pixels = ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+                for (int done = 0; done < pixels.length; ) {
+                    int count = Math.min(pixels.length - done, chunk.remaining() / Integer.BYTES);
+                    chunk.asIntBuffer().put(pixels, done, count);
+                    chunk.position(chunk.position() + count * Integer.BYTES).flip();
+                    while (chunk.hasRemaining()) channel.write(chunk);
+                    chunk.clear();
+                    done += count;
+                }
+                channel.force(false);
+            }
+            Files.move(tmp, raw, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        evict();
+    }
+
+    //Deletes least recently used raw files until the directory fits in maxBytes, and their index entries
+    //Synchronized so two stores do not evict at once; files another process removes meanwhile are skipped
+    private synchronized void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(dir)) {
+            listing.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+        }
+        long total = 0;
+        for (Path p : files) total += sizeOrZero(p);
+        if (total <= maxBytes) return;
+
+        files.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+        List<String> evicted = new ArrayList<>();
+        for (Path p : files) {
+            if (total <= maxBytes) break;
+            total -= sizeOrZero(p);
+            Files.deleteIfExists(p);
+            String name = p.getFileName().toString();
+            evicted.add(name.substring(0, name.length() - SUFFIX.length()));
+        }
+        hashes.forget(evicted);
+    }
+
+    //False if the file ends before the buffer is full; the buffer is flipped for reading otherwise
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return false;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    //Size of a file that may vanish while the directory is scanned
+    private static long sizeOrZero(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    //SHA-256 of the file's bytes, remembered per path, mtime and size so unchanged files are not hashed twice
+    String contentHash(File file) throws IOException {
+        return hashes.hash(file);
+    }
+}
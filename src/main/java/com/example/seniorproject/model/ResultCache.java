@@ -0,0 +1,244 @@
+package com.example.seniorproject.model;
+
+import com.example.seniorproject.model.metrics.MetricsRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/*
+ Optional on-disk cache of analysis and extraction results, so repeating the same work on unchanged files is instant
+ An entry's key is the SHA-256 of the operation name, its parameters and the content hash of every input file, so it
+ survives renames and copies and can never be served for different pixels or settings. Each entry is one
+ <key>.result file: magic, version, the full key again, the deflated length and its CRC-32C, then the deflated value.
+ Entries whose key, length or checksum do not match are deleted and treated as misses. When the directory grows past
+ its byte limit the least recently used entries are deleted.
+ Secrets that go into a key, such as an embedding key, are first put through a salted PBKDF2. Cached extractions still
+ hold the recovered secret itself in plain form, so the folder is as sensitive as the secrets extracted with it.
+ Off unless -Dseniorproject.resultCache.dir is set; -Dseniorproject.resultCache.maxBytes sets the limit (default 1 GB).
+*/
+public final class ResultCache {
+
+    public static final String DIR_PROPERTY = "seniorproject.resultCache.dir";
+    public static final String MAX_BYTES_PROPERTY = "seniorproject.resultCache.maxBytes";
+    private static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    private static final int MAGIC = 0x52534C54; //"RSLT"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".result";
+    private static final String INDEX_FILE = "index.properties";
+    private static final String SALT_FILE = "salt";
+    private static final int SALT_BYTES = 16;
+    private static final int SECRET_ITERATIONS = 100_000;
+
+    private static final ResultCache SHARED = fromSystemProperties();
+
+    private final Path dir;
+    private final long maxBytes;
+    private final ContentHashIndex hashes;
+    private final byte[] salt;
+    //Derivations already done this session, so a repeated key costs one derivation
+    private final Map<String, String> secretDigests = new ConcurrentHashMap<>();
+
+    public ResultCache(Path dir, long maxBytes) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        this.hashes = new ContentHashIndex(dir.resolve(INDEX_FILE));
+        this.salt = loadOrCreateSalt(dir.resolve(SALT_FILE));
+    }
+
+    //Random salt of this cache folder, created on first use
+    private static byte[] loadOrCreateSalt(Path file) throws IOException {
+        if (Files.exists(file)) {
+            byte[] salt = Files.readAllBytes(file);
+            if (salt.length == SALT_BYTES) return salt;
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        Path tmp = Files.createTempFile(file.getParent(), "salt", ".tmp");
+        Files.write(tmp, salt);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return salt;
+    }
+
+    //The cache configured by system properties, or null when it is switched off or the directory is unusable
+    public static ResultCache fromSystemProperties() {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) return null;
+        try {
+            return new ResultCache(Path.of(dir), Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    //Shared by all tabs; null when the cache is switched off
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    //Key of an operation with the given parameters over the current contents of the files
+    public String key(String operation, String parameters, File... inputs) throws IOException {
+        StringBuilder text = new StringBuilder(operation).append('\n').append(parameters);
+        for (File input : inputs) text.append('\n').append(hashes.hash(input));
+        return digest(text.toString());
+    }
+
+    //Hex SHA-256 of the text, used for entry keys
+    public static String digest(String text) {
+        return HexFormat.of().formatHex(ContentHashIndex.sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    //Salted PBKDF2 of a secret such as an embedding key, for use in the parameters of a key
+    //A plain hash of a 32-bit key is reversed by trying every key; with the folder's salt and 100 000 rounds each
+    //guess is slow and no precomputed table applies
+    public String secretDigest(String secret) {
+        return secretDigests.computeIfAbsent(secret, s -> {
+            try {
+                PBEKeySpec spec = new PBEKeySpec(s.toCharArray(), salt, SECRET_ITERATIONS, 256);
+                byte[] derived = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+                spec.clearPassword();
+                return HexFormat.of().formatHex(derived);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    //Stored value, or null on a miss or a damaged entry
+    public byte[] get(String key) {
+        Path file = dir.resolve(key + SUFFIX);
+        if (!Files.exists(file)) {
+            MetricsRegistry.global().counter("result cache.misses").increment();
+            return null;
+        }
+        byte[] value;
+        try {
+            value = read(file, key);
+        } catch (NoSuchFileException e) {
+            //Evicted between the check and the read
+            MetricsRegistry.global().counter("result cache.misses").increment();
+            return null;
+        } catch (IOException e) {
+            //Truncated or garbled, e.g. a UTFDataFormatException from the key
+            value = null;
+        }
+        if (value == null) {
+            MetricsRegistry.global().counter("result cache.corrupt").increment();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                //Tried again on the next read
+            }
+            return null;
+        }
+        try {
+            //The mtime doubles as the last-use time for eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //Only makes the entry look older to eviction
+        }
+        MetricsRegistry.global().counter("result cache.hits").increment();
+        return value;
+    }
+
+    //Null when the header, key, length or checksum does not match
+    private static byte[] read(Path file, String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)) return null;
+            int length = in.readInt();
+            long checksum = in.readLong();
+            if (length < 0 || length > Files.size(file)) return null;
+            byte[] deflated = in.readNBytes(length);
+            if (deflated.length != length || in.read() != -1) return null;
+            CRC32C crc = new CRC32C();
+            crc.update(deflated);
+            if (crc.getValue() != checksum) return null;
+            try (InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(deflated))) {
+                return inflater.readAllBytes();
+            }
+        }
+    }
+
+    //Writes the value under the key, then trims the directory to its limit; failures only cost the cache entry
+    public void put(String key, byte[] value) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (OutputStream deflater = new DeflaterOutputStream(buffer, new Deflater(Deflater.BEST_SPEED))) {
+                deflater.write(value);
+            }
+            byte[] deflated = buffer.toByteArray();
+            if (deflated.length > maxBytes) return;
+            CRC32C crc = new CRC32C();
+            crc.update(deflated);
+
+            Path tmp = Files.createTempFile(dir, "store", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeInt(deflated.length);
+                out.writeLong(crc.getValue());
+                out.write(deflated);
+            }
+            Files.move(tmp, dir.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            MetricsRegistry.global().counter("result cache.write failures").increment();
+        }
+    }
+
+    //Deletes least recently used entries until the directory fits in maxBytes
+    //Entries a concurrent get deletes as damaged, or another process removes, meanwhile are skipped
+    private synchronized void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(dir)) {
+            listing.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+        }
+        long total = 0;
+        for (Path p : files) total += sizeOrZero(p);
+        if (total <= maxBytes) return;
+
+        files.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+        for (Path p : files) {
+            if (total <= maxBytes) break;
+            total -= sizeOrZero(p);
+            Files.deleteIfExists(p);
+        }
+    }
+
+    //Size of a file that may vanish while the directory is scanned
+    private static long sizeOrZero(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+}
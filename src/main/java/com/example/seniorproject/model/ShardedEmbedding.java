@@ -0,0 +1,182 @@
+package com.example.seniorproject.model;
+
+import com.example.seniorproject.model.algorithm.ExecutionContext;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/*
+ Spreads one secret over several cover images, for secrets too large for any single cover
+ The secret is cut into one shard per cover, sized in proportion to what each cover can hold, and every shard is
+ embedded with the chosen algorithm as an ordinary secret:
+   magic (8 bytes) | version | set id | index | count | secret length | offset | length | CRC-32C of the data
+   | CRC-32C of these header fields | data
+ The covers are embedded concurrently, one per worker of the common ForkJoinPool. On extraction the stego images
+ may come in any order: each is extracted concurrently, its shard checked, and the shards are put back in place by
+ their offsets. The random set id keeps shards of different embeddings from being mixed up.
+*/
+public final class ShardedEmbedding {
+
+    //Bytes each shard adds to what a cover has to hold
+    public static final int HEADER_BYTES = 8 + 1 + 8 + 4 * 5 + 4 * 2;
+
+    //PNG-style signature like ChunkedPayload's, so a plain secret never passes for a shard
+    private static final byte[] MAGIC = {(byte) 0x89, 'S', 'S', 'H', 'D', '\r', '\n', 0x1A};
+    private static final byte VERSION = 1;
+    private static final int CRC_BYTES = 4;
+
+    private static final SecureRandom SET_IDS = new SecureRandom();
+
+    private record Shard(long setId, int index, int count, int totalLength, int offset, byte[] data) {}
+
+    private final EmbeddingModel embedding;
+    private final ExtractingModel extracting;
+
+    public ShardedEmbedding() {
+        this(new EmbeddingModel(), new ExtractingModel());
+    }
+
+    public ShardedEmbedding(EmbeddingModel embedding, ExtractingModel extracting) {
+        this.embedding = embedding;
+        this.extracting = extracting;
+    }
+
+    //Stego images in the same order as the covers; every cover gets a shard, possibly an empty one
+    public List<BufferedImage> embed(List<BufferedImage> covers, byte[] secret, String algorithm, int key,
+                                     ExecutionContext context) {
+        if (covers.isEmpty()) throw new IllegalArgumentException("At least one cover image is needed");
+        int[] lengths = shardLengths(covers, secret.length, algorithm, key);
+        int[] offsets = new int[lengths.length];
+        for (int i = 1; i < lengths.length; i++) offsets[i] = offsets[i - 1] + lengths[i - 1];
+
+        long setId = SET_IDS.nextLong();
+        //Concurrent covers would fight over one progress bar; they share the caller's flag and deadline only
+        ExecutionContext perCover = context.withoutProgress();
+        context.begin(secret.length);
+        return IntStream.range(0, covers.size()).parallel().mapToObj(i -> {
+            byte[] shard = shardBytes(new Shard(setId, i, covers.size(), secret.length, offsets[i],
+                    Arrays.copyOfRange(secret, offsets[i], offsets[i] + lengths[i])));
+            BufferedImage stego = embedding.embed(covers.get(i), shard, algorithm, key, perCover);
+            context.advance(lengths[i]);
+            return stego;
+        }).toList();
+    }
+
+    //The secret from all stego images of one sharded embedding, in any order
+    public byte[] extract(List<BufferedImage> stegos, String algorithm, int key, ExecutionContext context) {
+        if (stegos.isEmpty()) throw new IllegalArgumentException("At least one stego image is needed");
+        ExecutionContext perImage = context.withoutProgress();
+        context.begin(stegos.size());
+        List<Shard> shards = new ArrayList<>(IntStream.range(0, stegos.size()).parallel().mapToObj(i -> {
+            Shard shard = parseShard(extracting.extract(stegos.get(i), algorithm, key, perImage));
+            if (shard == null) throw new IllegalStateException("Image " + (i + 1) + " does not hold a shard");
+            context.advance(1);
+            return shard;
+        }).toList());
+        shards.sort(Comparator.comparingInt(Shard::index));
+
+        Shard first = shards.get(0);
+        int expectedOffset = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            if (shard.setId() != first.setId()) {
+                throw new IllegalStateException("The images come from different sharded embeddings");
+            }
+            if (shard.count() != first.count() || shard.totalLength() != first.totalLength()) {
+                throw new IllegalStateException("Shards disagree about the secret they belong to");
+            }
+            if (shard.index() != i) {
+                throw new IllegalStateException(shard.index() < i ? "Shard " + shard.index() + " was given twice"
+                        : "Shard " + i + " of " + first.count() + " is missing");
+            }
+            if (shard.offset() != expectedOffset) throw new IllegalStateException("Shard " + i + " is out of place");
+            expectedOffset += shard.data().length;
+        }
+        if (shards.size() != first.count()) {
+            throw new IllegalStateException("Shard " + shards.size() + " of " + first.count() + " is missing");
+        }
+        if (expectedOffset != first.totalLength()) throw new IllegalStateException("Shards do not add up to the secret");
+
+        byte[] secret = new byte[first.totalLength()];
+        shards.parallelStream().forEach(s -> System.arraycopy(s.data(), 0, secret, s.offset(), s.data().length));
+        return secret;
+    }
+
+    //Largest secret the covers hold together
+    public static long capacity(List<BufferedImage> covers, String algorithm, int key) {
+        long total = 0;
+        for (BufferedImage cover : covers) {
+            total += Math.max(0, Algorithms.byName(algorithm, key).capacity(cover) - HEADER_BYTES);
+        }
+        return total;
+    }
+
+    //Shard sizes in proportion to each cover's room after the shard header; the rounding remainder goes to covers with room left
+    private static int[] shardLengths(List<BufferedImage> covers, int secretLength, String algorithm, int key) {
+        long[] room = new long[covers.size()];
+        long total = 0;
+        for (int i = 0; i < room.length; i++) {
+            room[i] = Algorithms.byName(algorithm, key).capacity(covers.get(i)) - HEADER_BYTES;
+            if (room[i] < 0) throw new IllegalArgumentException("Cover image " + (i + 1) + " is too small to hold a shard");
+            total += room[i];
+        }
+        if (secretLength > total) {
+            throw new IllegalArgumentException("The cover images are too small: need " + secretLength
+                    + " bytes, have " + total);
+        }
+        int[] lengths = new int[room.length];
+        long left = secretLength;
+        for (int i = 0; i < room.length; i++) {
+            lengths[i] = total == 0 ? 0 : (int) (secretLength * room[i] / total);
+            left -= lengths[i];
+        }
+        for (int i = 0; left > 0; i++) {
+            int extra = (int) Math.min(left, room[i] - lengths[i]);
+            lengths[i] += extra;
+            left -= extra;
+        }
+        return lengths;
+    }
+
+    private static byte[] shardBytes(Shard shard) {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + shard.data().length);
+        CRC32C crc = new CRC32C();
+        crc.update(shard.data());
+        out.put(MAGIC).put(VERSION).putLong(shard.setId()).putInt(shard.index()).putInt(shard.count())
+                .putInt(shard.totalLength()).putInt(shard.offset()).putInt(shard.data().length).putInt((int) crc.getValue());
+        crc.reset();
+        crc.update(out.array(), 0, HEADER_BYTES - CRC_BYTES);
+        out.putInt((int) crc.getValue());
+        return out.put(shard.data()).array();
+    }
+
+    //Null unless magic, version and header checksum match; throws when the header is sound but the data is not
+    private static Shard parseShard(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) return null;
+        ByteBuffer in = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_BYTES - MAGIC.length);
+        byte version = in.get();
+        long setId = in.getLong();
+        int index = in.getInt(), count = in.getInt(), totalLength = in.getInt(), offset = in.getInt(), length = in.getInt();
+        int dataCrc = in.getInt(), headerCrc = in.getInt();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, HEADER_BYTES - CRC_BYTES);
+        if (version != VERSION || (int) crc.getValue() != headerCrc) return null;
+        if (index < 0 || index >= count || offset < 0 || length != bytes.length - HEADER_BYTES
+                || (long) offset + length > totalLength) {
+            return null;
+        }
+        crc.reset();
+        crc.update(bytes, HEADER_BYTES, length);
+        if ((int) crc.getValue() != dataCrc) {
+            throw new IllegalStateException("Checksum mismatch in shard " + index + ": data may be corrupted");
+        }
+        return new Shard(setId, index, count, totalLength, offset, Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length));
+    }
+}
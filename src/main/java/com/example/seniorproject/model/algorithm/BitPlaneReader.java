@@ -0,0 +1,41 @@
+package com.example.seniorproject.model.algorithm;
+
+//Reads bytes back from the low k bits of consecutive channels - the mirror of BitPlaneWriter
+final class BitPlaneReader {
+
+    private final int[] pixels;
+    private final int bitsPerChannel;
+    private final int[] shifts;
+    private final int valueMask;
+
+    private int channelSlot;
+    private long pending;
+    private int pendingBits;
+
+    BitPlaneReader(int[] pixels, int bitsPerChannel, boolean includeAlpha) {
+        this.pixels = pixels;
+        this.bitsPerChannel = bitsPerChannel;
+        this.shifts = BitPlaneWriter.channelShifts(includeAlpha);
+        this.valueMask = (1 << bitsPerChannel) - 1;
+    }
+
+    byte readByte() {
+        while (pendingBits < 8) {
+            int pixelIndex = channelSlot / shifts.length;
+            int shift = shifts[channelSlot % shifts.length];
+            pending |= (long) ((pixels[pixelIndex] >>> shift) & valueMask) << pendingBits;
+            pendingBits += bitsPerChannel;
+            channelSlot++;
+        }
+        byte b = (byte) pending;
+        pending >>>= 8;
+        pendingBits -= 8;
+        return b;
+    }
+
+    void readBytes(byte[] into, int from, int to) {
+        for (int i = from; i < to; i++) {
+            into[i] = readByte();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.seniorproject.model.algorithm;
+
+//Streams bytes into the low k bits of consecutive channels of an ARGB pixel array
+//Channels are visited R, G, B (then A when enabled) pixel after pixel; bits go in least significant first
+final class BitPlaneWriter {
+
+    private static final int[] RGB_SHIFTS = {16, 8, 0};
+    private static final int[] RGBA_SHIFTS = {16, 8, 0, 24};
+
+    private final int[] pixels;
+    private final int bitsPerChannel;
+    private final int[] shifts;
+    private final int valueMask;
+
+    private int channelSlot;
+    private long pending;
+    private int pendingBits;
+
+    BitPlaneWriter(int[] pixels, int bitsPerChannel, boolean includeAlpha) {
+        this.pixels = pixels;
+        this.bitsPerChannel = bitsPerChannel;
+        this.shifts = channelShifts(includeAlpha);
+        this.valueMask = (1 << bitsPerChannel) - 1;
+    }
+
+    //Number of channels used per pixel
+    static int channelsPerPixel(boolean includeAlpha) {
+        return channelShifts(includeAlpha).length;
+    }
+
+    static int[] channelShifts(boolean includeAlpha) {
+        return includeAlpha ? RGBA_SHIFTS : RGB_SHIFTS;
+    }
+
+    void writeByte(byte b) {
+        pending |= (long) (b & 0xFF) << pendingBits;
+        pendingBits += 8;
+        drain();
+    }
+
+    //Bulk write - every full group of k bits goes straight into its channel
+    void writeBytes(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            pending |= (long) (data[i] & 0xFF) << pendingBits;
+            pendingBits += 8;
+            drain();
+        }
+    }
+
+    //Writes out the last partial channel, keeping the cover's remaining low bits
+    void flush() {
+        if (pendingBits > 0) {
+            int keepMask = valueMask & ~((1 << pendingBits) - 1);
+            int pixelIndex = channelSlot / shifts.length;
+            int shift = shifts[channelSlot % shifts.length];
+            int current = (pixels[pixelIndex] >>> shift) & keepMask;
+            storeValue(current | (int) pending);
+            pending = 0;
+            pendingBits = 0;
+        }
+    }
+
+    private void drain() {
+        while (pendingBits >= bitsPerChannel) {
+            storeValue((int) (pending & valueMask));
+            pending >>>= bitsPerChannel;
+            pendingBits -= bitsPerChannel;
+        }
+    }
+
+    private void storeValue(int value) {
+        int pixelIndex = channelSlot / shifts.length;
+        int shift = shifts[channelSlot % shifts.length];
+        pixels[pixelIndex] = (pixels[pixelIndex] & ~(valueMask << shift)) | (value << shift);
+        channelSlot++;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.seniorproject.model.algorithm;
+
+import java.util.function.BooleanSupplier;
+
+//Flag a caller flips to abandon a run; shared between the thread that cancels and the threads doing the work
+public final class CancellationToken implements BooleanSupplier {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.seniorproject.model.algorithm;
+
+import java.util.concurrent.CancellationException;
+
+//Thrown from the algorithm loops when a run goes past the deadline in its ExecutionContext
+public class DeadlineExceededException extends CancellationException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
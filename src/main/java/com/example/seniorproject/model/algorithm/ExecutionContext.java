@@ -0,0 +1,88 @@
+package com.example.seniorproject.model.algorithm;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+//Carries a progress sink, a cancellation flag and an optional deadline into the algorithm loops
+//The loops check it once per chunk (about every thousand bytes), so a check costs one flag read and one nanoTime
+//One context belongs to one run; advance() may be called from several worker threads at once
+public final class ExecutionContext {
+
+    public static final ExecutionContext NONE = new ExecutionContext(ProgressSink.NONE, () -> false, null);
+
+    private final ProgressSink progress;
+    private final BooleanSupplier cancelled;
+    private final Duration timeout;
+    private final long deadlineNanos;
+    private final AtomicLong done = new AtomicLong();
+    private volatile long total;
+
+    private ExecutionContext(ProgressSink progress, BooleanSupplier cancelled, Duration timeout) {
+        this(progress, cancelled, timeout, timeout == null ? 0 : System.nanoTime() + timeout.toNanos());
+    }
+
+    private ExecutionContext(ProgressSink progress, BooleanSupplier cancelled, Duration timeout, long deadlineNanos) {
+        this.progress = progress;
+        this.cancelled = cancelled;
+        this.timeout = timeout;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static ExecutionContext of(ProgressSink progress, BooleanSupplier cancelled) {
+        return new ExecutionContext(progress, cancelled, null);
+    }
+
+    //A CancellationToken can be passed as the cancelled flag; the deadline starts counting now
+    public static ExecutionContext of(ProgressSink progress, BooleanSupplier cancelled, Duration timeout) {
+        return new ExecutionContext(progress, cancelled, timeout);
+    }
+
+    //Same sink and flag, with a deadline counted from now
+    public ExecutionContext withTimeout(Duration timeout) {
+        return new ExecutionContext(progress, cancelled, timeout);
+    }
+
+    //Same flag and the same deadline, without progress - for parts of a run that go on concurrently
+    public ExecutionContext withoutProgress() {
+        return new ExecutionContext(ProgressSink.NONE, cancelled, timeout, deadlineNanos);
+    }
+
+    //Starts a new stretch of work measured in the given units (bytes for the algorithms)
+    public void begin(long totalUnits) {
+        total = totalUnits;
+        done.set(0);
+        progress.update(0, totalUnits);
+    }
+
+    //Records finished units and stops the run if it was cancelled meanwhile
+    public void advance(long units) {
+        checkCancelled();
+        progress.update(done.addAndGet(units), total);
+    }
+
+    //Work whose size is not known, such as decoding or encoding a PNG
+    public void indeterminate() {
+        checkCancelled();
+        progress.update(-1, 1);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    public boolean isExpired() {
+        return timeout != null && System.nanoTime() - deadlineNanos > 0;
+    }
+
+    //Stops the run when it was cancelled or has used up its time
+    public void checkCancelled() {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Cancelled");
+        }
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline of " + timeout.toMillis() + " ms exceeded");
+        }
+    }
+}
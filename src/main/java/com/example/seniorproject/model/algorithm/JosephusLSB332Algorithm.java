@@ -1,11 +1,16 @@
 package com.example.seniorproject.model.algorithm;
 
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
 import static com.example.seniorproject.model.algorithm.LSBMethods.checksum;
 import static com.example.seniorproject.model.algorithm.LSBMethods.copyImage;
+import static com.example.seniorproject.model.algorithm.LSBMethods.readByte332;
+import static com.example.seniorproject.model.algorithm.LSBMethods.storeByte332;
 
 /*
  Josephus-permutation LSB steganography with 3-3-2 bit encoding
@@ -30,7 +35,7 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
 
     //Embeds secret data by scattering it chaotically in chosen pixel locations
     @Override
-    public BufferedImage embed(BufferedImage coverImage, byte[] secret) {
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
         byte[] payload = secret == null ? new byte[0] : secret;
 
         int pixelCount = coverImage.getWidth() * coverImage.getHeight();
@@ -40,41 +45,52 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
             throw new IllegalArgumentException("Cover image is too small to embed this data");
         }
 
-        List<Integer> availablePixels = buildPixelPool(pixelCount);
+        PhaseTags tags = phaseTags(coverImage, payload.length);
+        List<Integer> availablePixels = Phase.measure("permutation", tags, () -> buildPixelPool(pixelCount));
         double[] chaos = initChaoticState();
+        context.checkCancelled();
 
-        BufferedImage stegoImage = copyImage(coverImage);
+        BufferedImage stegoImage = Phase.measure("copy", tags, () -> copyImage(coverImage));
+        context.checkCancelled();
 
         //Magic bytes let us verify the correct key was used during extraction
-        embedByte332(MAGIC_0, nextLocation(availablePixels, chaos), stegoImage);
-        embedByte332(MAGIC_1, nextLocation(availablePixels, chaos), stegoImage);
+        storeByte332(MAGIC_0, nextLocation(availablePixels, chaos), stegoImage);
+        storeByte332(MAGIC_1, nextLocation(availablePixels, chaos), stegoImage);
 
         // Payload length split into 4 bytes, big-endian
         for (int i = 0; i < HEADER_BYTES; i++) {
             int shift = 24 - 8 * i;
-            embedByte332((byte) ((payload.length >> shift) & 0xFF), nextLocation(availablePixels, chaos), stegoImage);
+            storeByte332((byte) ((payload.length >> shift) & 0xFF), nextLocation(availablePixels, chaos), stegoImage);
         }
 
-        for (byte b : payload) {
-            embedByte332(b, nextLocation(availablePixels, chaos), stegoImage);
-        }
+        //Locations depend on every earlier pick, so this loop stays on one thread
+        context.begin(payload.length);
+        Phase.run("embed loop", tags, () -> ParallelRange.forEachSerial(0, payload.length, context,
+                i -> storeByte332(payload[i], nextLocation(availablePixels, chaos), stegoImage)));
 
-        embedByte332(checksum(payload), nextLocation(availablePixels, chaos), stegoImage);
+        storeByte332(Phase.measure("checksum", tags, () -> checksum(payload)), nextLocation(availablePixels, chaos), stegoImage);
 
         return stegoImage;
     }
 
+    @Override
+    public int capacity(BufferedImage coverImage) {
+        return Math.max(0, coverImage.getWidth() * coverImage.getHeight() - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES);
+    }
+
     //Extracts hidden data by regenerating the same chaotic pixel sequence
     @Override
-    public byte[] extract(BufferedImage stegoImage) {
+    public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
         int pixelCount = stegoImage.getWidth() * stegoImage.getHeight();
 
-        List<Integer> availablePixels = buildPixelPool(pixelCount);
+        PhaseTags tags = phaseTags(stegoImage, 0);
+        List<Integer> availablePixels = Phase.measure("permutation", tags, () -> buildPixelPool(pixelCount));
         double[] chaos = initChaoticState();
+        context.checkCancelled();
 
         //If magic bytes don't match, either no data or wrong key
-        byte m0 = extractByte332(nextLocation(availablePixels, chaos), stegoImage);
-        byte m1 = extractByte332(nextLocation(availablePixels, chaos), stegoImage);
+        byte m0 = readByte332(nextLocation(availablePixels, chaos), stegoImage);
+        byte m1 = readByte332(nextLocation(availablePixels, chaos), stegoImage);
 
         if (m0 != MAGIC_0 || m1 != MAGIC_1) {
             throw new IllegalStateException("No hidden message found in this image or the key used was wrong");
@@ -83,7 +99,7 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
         // Reassemble the 4-byte big-endian header into an int
         int dataLen = 0;
         for (int i = 0; i < HEADER_BYTES; i++) {
-            dataLen = (dataLen << 8) | (0xFF & extractByte332(nextLocation(availablePixels, chaos), stegoImage));
+            dataLen = (dataLen << 8) | (0xFF & readByte332(nextLocation(availablePixels, chaos), stegoImage));
         }
 
         int maxLen = pixelCount - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES;
@@ -92,13 +108,14 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
         }
 
         byte[] payload = new byte[dataLen];
-        for (int i = 0; i < dataLen; i++) {
-            payload[i] = extractByte332(nextLocation(availablePixels, chaos), stegoImage);
-        }
+        PhaseTags payloadTags = tags.withPayload(dataLen);
+        context.begin(dataLen);
+        Phase.run("extract loop", payloadTags, () -> ParallelRange.forEachSerial(0, payload.length, context,
+                i -> payload[i] = readByte332(nextLocation(availablePixels, chaos), stegoImage)));
 
         // Verify integrity
-        byte computed = checksum(payload);
-        byte stored = extractByte332(nextLocation(availablePixels, chaos), stegoImage);
+        byte computed = Phase.measure("checksum", payloadTags, () -> checksum(payload));
+        byte stored = readByte332(nextLocation(availablePixels, chaos), stegoImage);
         if (computed != stored) {
             throw new IllegalStateException("Checksum mismatch: data may be corrupted or wrong key used");
         }
@@ -106,6 +123,22 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
         return payload;
     }
 
+    //The bytes embed stores, in location order
+    byte[] frame(byte[] payload) {
+        return LSBMethods.frame(MAGIC_0, MAGIC_1, payload);
+    }
+
+    //Pixel of each of the first count stored bytes, picked the same way as embed
+    int[] positions(BufferedImage coverImage, int count) {
+        int pixelCount = coverImage.getWidth() * coverImage.getHeight();
+        if (count > pixelCount) throw new IllegalArgumentException("Cover image is too small to embed this data");
+        List<Integer> availablePixels = buildPixelPool(pixelCount);
+        double[] chaos = initChaoticState();
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) positions[i] = nextLocation(availablePixels, chaos);
+        return positions;
+    }
+
     //Creates a pool of all pixels for Josephus elimination 
     private List<Integer> buildPixelPool(int pixelCount) {
         List<Integer> pool = new ArrayList<>(pixelCount);
@@ -132,35 +165,4 @@ public class JosephusLSB332Algorithm implements SteganographyAlgorithm {
         availablePixels.remove(lastIndex);
         return pixelIndex;
     }
-
-    //Stores one byte in a single pixel using 3-3-2 encoding - 3 bits in Red, 3 bits in Green, 2 bits in Blue
-    private void embedByte332(byte secretByte, int pixelIndex, BufferedImage img) {
-        int val = secretByte & 0xFF;
-        int x = pixelIndex % img.getWidth();
-        int y = pixelIndex / img.getWidth();
-        int rgb = img.getRGB(x, y);
-        int alpha = (rgb >> 24) & 0xFF;
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
-
-        //Replace the lowest 3, 3 and 2 bits of each channel with secret bits
-        red = (red & 0xF8) | ((val >> 5) & 0x07);
-        green = (green & 0xF8) | ((val >> 2) & 0x07);
-        blue = (blue & 0xFC) | ( val & 0x03);
-
-        img.setRGB(x, y, (alpha << 24) | (red << 16) | (green << 8) | blue);
-    }
-
-    //Read back the byte from a single pixel 
-    private byte extractByte332(int pixelIndex, BufferedImage img) {
-        int x = pixelIndex % img.getWidth();
-        int y = pixelIndex / img.getWidth();
-        int rgb = img.getRGB(x, y);
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
-
-        return (byte) (((red & 0x07) << 5) | ((green & 0x07) << 2) | (blue & 0x03));
-    }
 }
@@ -0,0 +1,207 @@
+package com.example.seniorproject.model.algorithm;
+
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.example.seniorproject.model.algorithm.LSBMethods.checksum;
+import static com.example.seniorproject.model.algorithm.LSBMethods.copyImage;
+import static com.example.seniorproject.model.algorithm.LSBMethods.readByte332;
+import static com.example.seniorproject.model.algorithm.LSBMethods.storeByte332;
+
+/*
+ Josephus LSB 3-3-2, version 2
+ Same one-byte-per-pixel 3-3-2 layout as version 1, but the pixel for byte k is computed directly from k instead of
+ walking a shrinking Josephus pool. A keyed Feistel network (round keys drawn from the logistic map, r=3.87) permutes
+ the pixel indices; cycle-walking keeps the result inside the image, so no two bytes ever land on the same pixel.
+ Because every location is independent, the payload is embedded and extracted on the common ForkJoinPool.
+ Images written by version 1 are not readable by version 2 and the other way round - the magic bytes differ.
+*/
+public class JosephusLSB332V2Algorithm implements SteganographyAlgorithm {
+
+    private static final byte MAGIC_0 = (byte) 0xEF;
+    private static final byte MAGIC_1 = (byte) 0xB2;
+    private static final int MAGIC_BYTES = 2;
+    private static final int HEADER_BYTES = 4;
+    private static final int CHECKSUM_BYTES = 1;
+    private static final double GROWTH_RATE = 3.87;
+    private static final int ROUNDS = 6;
+    private static final int PARALLEL_GRAIN = 4096;
+
+    private final long[] roundKeys;
+
+    public JosephusLSB332V2Algorithm(int key) {
+        this.roundKeys = buildRoundKeys(key);
+    }
+
+    //Embeds secret data, one byte per pixel, at key-dependent pixel locations
+    @Override
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
+        byte[] payload = secret == null ? new byte[0] : secret;
+
+        int pixelCount = coverImage.getWidth() * coverImage.getHeight();
+        int slotsNeeded = MAGIC_BYTES + HEADER_BYTES + payload.length + CHECKSUM_BYTES;
+
+        if (slotsNeeded > pixelCount) {
+            throw new IllegalArgumentException("Cover image is too small to embed this data");
+        }
+
+        PhaseTags tags = phaseTags(coverImage, payload.length);
+        BufferedImage stegoImage = Phase.measure("copy", tags, () -> copyImage(coverImage));
+        context.checkCancelled();
+
+        storeByte332(MAGIC_0, location(0, pixelCount), stegoImage);
+        storeByte332(MAGIC_1, location(1, pixelCount), stegoImage);
+
+        //Payload length split into 4 bytes, big-endian
+        for (int i = 0; i < HEADER_BYTES; i++) {
+            int shift = 24 - 8 * i;
+            storeByte332((byte) ((payload.length >> shift) & 0xFF), location(MAGIC_BYTES + i, pixelCount), stegoImage);
+        }
+
+        //Every slot owns its own pixel, so the payload can be written from any number of threads
+        int first = MAGIC_BYTES + HEADER_BYTES;
+        context.begin(payload.length);
+        Phase.run("embed loop", tags, () -> ParallelRange.forEach(0, payload.length, PARALLEL_GRAIN, 1, context,
+                i -> storeByte332(payload[i], location(first + i, pixelCount), stegoImage)));
+
+        storeByte332(Phase.measure("checksum", tags, () -> checksum(payload)), location(first + payload.length, pixelCount), stegoImage);
+
+        return stegoImage;
+    }
+
+    @Override
+    public int capacity(BufferedImage coverImage) {
+        return Math.max(0, coverImage.getWidth() * coverImage.getHeight() - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES);
+    }
+
+    //Extracts hidden data by recomputing each byte's pixel location from its index
+    @Override
+    public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
+        int pixelCount = stegoImage.getWidth() * stegoImage.getHeight();
+        int dataLen = payloadLength(stegoImage, pixelCount);
+
+        byte[] payload = new byte[dataLen];
+        int first = MAGIC_BYTES + HEADER_BYTES;
+        PhaseTags tags = phaseTags(stegoImage, dataLen);
+        context.begin(dataLen);
+        Phase.run("extract loop", tags, () -> ParallelRange.forEach(0, payload.length, PARALLEL_GRAIN, 1, context,
+                i -> payload[i] = readByte332(location(first + i, pixelCount), stegoImage)));
+
+        // Verify integrity
+        byte computed = Phase.measure("checksum", tags, () -> checksum(payload));
+        byte stored = readByte332(location(first + dataLen, pixelCount), stegoImage);
+        if (computed != stored) {
+            throw new IllegalStateException("Checksum mismatch: data may be corrupted or wrong key used");
+        }
+
+        return payload;
+    }
+
+    @Override
+    public PayloadReader payloadReader(BufferedImage stegoImage, ExecutionContext context) {
+        return (offset, length) -> extractRange(stegoImage, offset, length, context);
+    }
+
+    //Each byte's pixel is computed from its index, so only the pixels of the range are read
+    @Override
+    public byte[] extractRange(BufferedImage stegoImage, int offset, int length, ExecutionContext context) {
+        int pixelCount = stegoImage.getWidth() * stegoImage.getHeight();
+        Objects.checkFromIndexSize(offset, length, payloadLength(stegoImage, pixelCount));
+        byte[] range = new byte[length];
+        int first = MAGIC_BYTES + HEADER_BYTES + offset;
+        context.begin(length);
+        ParallelRange.forEach(0, length, PARALLEL_GRAIN, 1, context,
+                i -> range[i] = readByte332(location(first + i, pixelCount), stegoImage));
+        return range;
+    }
+
+    //Checks the magic bytes, then reassembles the 4-byte big-endian length header
+    private int payloadLength(BufferedImage stegoImage, int pixelCount) {
+        if (pixelCount < MAGIC_BYTES + HEADER_BYTES + CHECKSUM_BYTES) {
+            throw new IllegalStateException("No hidden message found in this image or the key used was wrong");
+        }
+
+        //If magic bytes don't match, either no data, wrong key or an image made with version 1
+        byte m0 = readByte332(location(0, pixelCount), stegoImage);
+        byte m1 = readByte332(location(1, pixelCount), stegoImage);
+
+        if (m0 != MAGIC_0 || m1 != MAGIC_1) {
+            throw new IllegalStateException("No hidden message found in this image or the key used was wrong");
+        }
+
+        // Reassemble the 4-byte big-endian header into an int
+        int dataLen = 0;
+        for (int i = 0; i < HEADER_BYTES; i++) {
+            dataLen = (dataLen << 8) | (0xFF & readByte332(location(MAGIC_BYTES + i, pixelCount), stegoImage));
+        }
+
+        int maxLen = pixelCount - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES;
+        if (dataLen < 0 || dataLen > maxLen) {
+            throw new IllegalStateException("Could not read message - did you use the right key?");
+        }
+        return dataLen;
+    }
+
+    //The bytes embed stores, in slot order
+    byte[] frame(byte[] payload) {
+        return LSBMethods.frame(MAGIC_0, MAGIC_1, payload);
+    }
+
+    //Pixel of each of the first count stored bytes
+    int[] positions(BufferedImage coverImage, int count) {
+        int pixelCount = coverImage.getWidth() * coverImage.getHeight();
+        if (count > pixelCount) throw new IllegalArgumentException("Cover image is too small to embed this data");
+        int[] positions = new int[count];
+        Arrays.parallelSetAll(positions, slot -> location(slot, pixelCount));
+        return positions;
+    }
+
+    //Pixel index for byte slot k - a bijection on [0, pixelCount), so distinct slots never collide
+    int location(int slot, int pixelCount) {
+        int halfBits = Math.max(1, (33 - Integer.numberOfLeadingZeros(pixelCount - 1)) / 2);
+        int x = slot;
+        //Cycle-walking: the Feistel domain is at most 4x the pixel count, so this loops only a few times on average
+        do {
+            x = feistel(x, halfBits);
+        } while (Integer.compareUnsigned(x, pixelCount) >= 0);
+        return x;
+    }
+
+    //Balanced Feistel network over 2 * halfBits bits
+    private int feistel(int value, int halfBits) {
+        int mask = (1 << halfBits) - 1;
+        int left = (value >>> halfBits) & mask;
+        int right = value & mask;
+        for (long roundKey : roundKeys) {
+            int next = left ^ (int) (mix(right ^ roundKey) & mask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    //64-bit finaliser from MurmurHash3 - integer-only avalanche for the round function
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    //Round keys are drawn from the same logistic map as version 1, seeded and warmed up the same way
+    private static long[] buildRoundKeys(int key) {
+        double chaos = (key % 9999 + 1) / 10000.0;
+        for (int i = 0; i < 100; i++) {
+            chaos = GROWTH_RATE * chaos * (1 - chaos);
+        }
+        long[] keys = new long[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            chaos = GROWTH_RATE * chaos * (1 - chaos);
+            keys[r] = mix(Double.doubleToLongBits(chaos) ^ ((long) key << 32) ^ r);
+        }
+        return keys;
+    }
+}
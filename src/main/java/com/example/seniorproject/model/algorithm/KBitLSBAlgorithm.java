@@ -0,0 +1,140 @@
+package com.example.seniorproject.model.algorithm;
+
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
+import java.awt.image.BufferedImage;
+
+import static com.example.seniorproject.model.algorithm.LSBMethods.checksum;
+
+/*
+ Sequential k-bit LSB steganography
+ Like the sequential LSB algorithm, but each channel gives up its k lowest bits (1-4), optionally including alpha.
+ A payload therefore touches k times fewer pixels. The pixels are read once into an int array, written through a
+ bulk bit-plane writer and stored back in one call.
+ With k = 1 and no alpha the bit layout is identical to LSBAlgorithm.
+*/
+public class KBitLSBAlgorithm implements SteganographyAlgorithm {
+
+    private static final int HEADER_BYTES   = 4;
+    private static final int CHECKSUM_BYTES = 1;
+    private static final int MAX_BITS_PER_CHANNEL = 4;
+    //Bytes per bulk write between progress and cancellation checks
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    private final int bitsPerChannel;
+    private final boolean includeAlpha;
+
+    public KBitLSBAlgorithm(int bitsPerChannel, boolean includeAlpha) {
+        if (bitsPerChannel < 1 || bitsPerChannel > MAX_BITS_PER_CHANNEL) {
+            throw new IllegalArgumentException("Bits per channel must be between 1 and " + MAX_BITS_PER_CHANNEL);
+        }
+        this.bitsPerChannel = bitsPerChannel;
+        this.includeAlpha = includeAlpha;
+    }
+
+    //k and the alpha setting, so phases of 2-bit and 4-bit runs can be told apart
+    @Override
+    public String metricsName() {
+        return getClass().getSimpleName() + "(k=" + bitsPerChannel + (includeAlpha ? ", alpha" : "") + ")";
+    }
+
+    //Embeds secret data into the low k bits of every channel, pixel after pixel
+    @Override
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
+        byte[] payload = secret == null ? new byte[0] : secret;
+
+        long bitsNeeded = (HEADER_BYTES + (long) payload.length + CHECKSUM_BYTES) * 8;
+        long bitsAvailable = bitsAvailable(coverImage);
+        if (bitsNeeded > bitsAvailable) {
+            throw new IllegalArgumentException(
+                    "Image too small: need " + bitsNeeded + " bits, have " + bitsAvailable);
+        }
+
+        int w = coverImage.getWidth();
+        int h = coverImage.getHeight();
+        PhaseTags tags = phaseTags(coverImage, payload.length);
+        int[] pixels = Phase.measure("copy", tags, () -> coverImage.getRGB(0, 0, w, h, null, 0, w));
+        context.checkCancelled();
+
+        BitPlaneWriter writer = new BitPlaneWriter(pixels, bitsPerChannel, includeAlpha);
+        //Payload length split into 4 bytes, big-endian
+        for (int i = 0; i < HEADER_BYTES; i++) {
+            int shift = 24 - 8 * i;
+            writer.writeByte((byte) ((payload.length >> shift) & 0xFF));
+        }
+        context.begin(payload.length);
+        Phase.run("embed loop", tags, () -> {
+            for (int start = 0; start < payload.length; start += BLOCK_BYTES) {
+                int end = Math.min(payload.length, start + BLOCK_BYTES);
+                writer.writeBytes(payload, start, end);
+                context.advance(end - start);
+            }
+        });
+        writer.writeByte(Phase.measure("checksum", tags, () -> checksum(payload)));
+        writer.flush();
+
+        return Phase.measure("write back", tags, () -> {
+            BufferedImage stegoImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            stegoImage.setRGB(0, 0, w, h, pixels, 0, w);
+            return stegoImage;
+        });
+    }
+
+    @Override
+    public int capacity(BufferedImage coverImage) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE - 8, bitsAvailable(coverImage) / 8 - HEADER_BYTES - CHECKSUM_BYTES));
+    }
+
+    //Extracts hidden data from the low k bits of every channel
+    @Override
+    public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
+        long maxLen = bitsAvailable(stegoImage) / 8 - HEADER_BYTES - CHECKSUM_BYTES;
+        if (maxLen < 0) {
+            throw new IllegalArgumentException("Image is too small to contain hidden data");
+        }
+
+        int w = stegoImage.getWidth();
+        int h = stegoImage.getHeight();
+        PhaseTags tags = phaseTags(stegoImage, 0);
+        BitPlaneReader reader = new BitPlaneReader(
+                Phase.measure("copy", tags, () -> stegoImage.getRGB(0, 0, w, h, null, 0, w)),
+                bitsPerChannel, includeAlpha);
+
+        //Reassemble the 4-byte big-endian header into an int
+        int dataLen = 0;
+        for (int i = 0; i < HEADER_BYTES; i++) {
+            dataLen = (dataLen << 8) | (0xFF & reader.readByte());
+        }
+
+        if (dataLen < 0 || dataLen > maxLen) {
+            throw new IllegalStateException(
+                    "No valid hidden data found (decoded length: " + dataLen + ")");
+        }
+
+        byte[] payload = new byte[dataLen];
+        PhaseTags payloadTags = tags.withPayload(dataLen);
+        context.begin(dataLen);
+        Phase.run("extract loop", payloadTags, () -> {
+            for (int start = 0; start < payload.length; start += BLOCK_BYTES) {
+                int end = Math.min(payload.length, start + BLOCK_BYTES);
+                reader.readBytes(payload, start, end);
+                context.advance(end - start);
+            }
+        });
+
+        //Verify integrity
+        byte computed = Phase.measure("checksum", payloadTags, () -> checksum(payload));
+        byte stored = reader.readByte();
+        if (computed != stored) {
+            throw new IllegalStateException("Checksum mismatch: data may be corrupted");
+        }
+
+        return payload;
+    }
+
+    private long bitsAvailable(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight()
+                * BitPlaneWriter.channelsPerPixel(includeAlpha) * bitsPerChannel;
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.seniorproject.model.algorithm;
 
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
 import java.awt.image.BufferedImage;
+import java.util.Objects;
 
 import static com.example.seniorproject.model.algorithm.LSBMethods.checksum;
 import static com.example.seniorproject.model.algorithm.LSBMethods.copyImage;
@@ -10,15 +14,30 @@ import static com.example.seniorproject.model.algorithm.LSBMethods.storeByteInPi
 /* 
  Sequential LSB (Least Significant Bit) steganography
  This algorithm hides data by replacing the least significant bit of each RGB channel in consecutive pixels.
+ In parallel mode the payload is cut into spans of whole pixels (3 bytes = 24 bits = 8 pixels) and each span runs on its own worker.
 */
 public class LSBAlgorithm implements SteganographyAlgorithm {
 
     private static final int HEADER_BYTES   = 4;
     private static final int CHECKSUM_BYTES = 1;
+    //Bytes per span; smaller payloads are processed serially
+    private static final int PARALLEL_GRAIN = 16 * 1024;
+    //3 bytes fill exactly 8 pixels, so spans starting on a multiple of 3 never share a pixel
+    private static final int SPAN_ALIGNMENT = 3;
+
+    private final boolean parallel;
+
+    public LSBAlgorithm() {
+        this(false);
+    }
+
+    public LSBAlgorithm(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     //Embeds secret data into a cover image containing the hidden data
     @Override
-    public BufferedImage embed(BufferedImage coverImage, byte[] secret) {
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
         byte[] payload = secret == null ? new byte[0] : secret;
 
         //Each pixel has 3 color channels (R, G, B) and each provides 1 usable bit
@@ -29,7 +48,9 @@ public class LSBAlgorithm implements SteganographyAlgorithm {
                     "Image too small: need " + bitsNeeded + " bits, have " + bitsAvailable);
         }
 
-        BufferedImage stegoImage = copyImage(coverImage);
+        PhaseTags tags = phaseTags(coverImage, payload.length);
+        BufferedImage stegoImage = Phase.measure("copy", tags, () -> copyImage(coverImage));
+        context.checkCancelled();
 
         //Split payload length into 4 bytes (big-endian) and store sequentially
         for (int i = 0; i < HEADER_BYTES; i++) {
@@ -37,25 +58,79 @@ public class LSBAlgorithm implements SteganographyAlgorithm {
             storeByteInPixels((byte) ((payload.length >> shift) & 0xFF), i, stegoImage);
         }
 
-        for (int i = 0; i < payload.length; i++) {
-            storeByteInPixels(payload[i], HEADER_BYTES + i, stegoImage);
-        }
+        context.begin(payload.length);
+        Phase.run("embed loop", tags, () -> {
+            if (parallel) {
+                ParallelRange.forEach(HEADER_BYTES, HEADER_BYTES + payload.length, PARALLEL_GRAIN, SPAN_ALIGNMENT, context,
+                        byteIndex -> storeByteInPixels(payload[byteIndex - HEADER_BYTES], byteIndex, stegoImage));
+            } else {
+                ParallelRange.forEachSerial(HEADER_BYTES, HEADER_BYTES + payload.length, context,
+                        byteIndex -> storeByteInPixels(payload[byteIndex - HEADER_BYTES], byteIndex, stegoImage));
+            }
+        });
 
-        storeByteInPixels(checksum(payload), HEADER_BYTES + payload.length, stegoImage);
+        storeByteInPixels(Phase.measure("checksum", tags, () -> checksum(payload)), HEADER_BYTES + payload.length, stegoImage);
 
         return stegoImage;
     }
 
+    @Override
+    public int capacity(BufferedImage coverImage) {
+        return Math.max(0, coverImage.getWidth() * coverImage.getHeight() * 3 / 8 - HEADER_BYTES - CHECKSUM_BYTES);
+    }
+
     //Extracts hidden data from a stego image.
     @Override
-    public byte[] extract(BufferedImage stegoImage) {
+    public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
+        int dataLen = payloadLength(stegoImage);
+
+        byte[] payload = new byte[dataLen];
+        PhaseTags tags = phaseTags(stegoImage, dataLen);
+        context.begin(dataLen);
+        Phase.run("extract loop", tags, () -> {
+            if (parallel) {
+                ParallelRange.forEach(HEADER_BYTES, HEADER_BYTES + payload.length, PARALLEL_GRAIN, SPAN_ALIGNMENT, context,
+                        byteIndex -> payload[byteIndex - HEADER_BYTES] = readByteFromPixels(byteIndex, stegoImage));
+            } else {
+                ParallelRange.forEachSerial(HEADER_BYTES, HEADER_BYTES + payload.length, context,
+                        byteIndex -> payload[byteIndex - HEADER_BYTES] = readByteFromPixels(byteIndex, stegoImage));
+            }
+        });
+
+        //Verify integrity
+        byte computed = Phase.measure("checksum", tags, () -> checksum(payload));
+        byte stored = readByteFromPixels(HEADER_BYTES + dataLen, stegoImage);
+        if (computed != stored) {
+            throw new IllegalStateException("Checksum mismatch: data may be corrupted");
+        }
+
+        return payload;
+    }
+
+    @Override
+    public PayloadReader payloadReader(BufferedImage stegoImage, ExecutionContext context) {
+        return (offset, length) -> extractRange(stegoImage, offset, length, context);
+    }
+
+    //Slots are consecutive, so only the bytes of the range are read
+    @Override
+    public byte[] extractRange(BufferedImage stegoImage, int offset, int length, ExecutionContext context) {
+        Objects.checkFromIndexSize(offset, length, payloadLength(stegoImage));
+        byte[] range = new byte[length];
+        int first = HEADER_BYTES + offset;
+        context.begin(length);
+        ParallelRange.forEachSerial(0, length, context, i -> range[i] = readByteFromPixels(first + i, stegoImage));
+        return range;
+    }
+
+    //Reassembles the 4-byte big-endian length header and checks it against the image's capacity
+    private static int payloadLength(BufferedImage stegoImage) {
         int maxLen = (stegoImage.getWidth() * stegoImage.getHeight() * 3) / 8
                      - HEADER_BYTES - CHECKSUM_BYTES;
         if (maxLen < 0) {
             throw new IllegalArgumentException("Image is too small to contain hidden data");
         }
 
-        //Reassemble the 4-byte big-endian header into an int
         int dataLen = 0;
         for (int i = 0; i < HEADER_BYTES; i++) {
             dataLen = (dataLen << 8) | (0xFF & readByteFromPixels(i, stegoImage));
@@ -65,19 +140,6 @@ public class LSBAlgorithm implements SteganographyAlgorithm {
             throw new IllegalStateException(
                     "No valid hidden data found (decoded length: " + dataLen + ")");
         }
-
-        byte[] payload = new byte[dataLen];
-        for (int i = 0; i < dataLen; i++) {
-            payload[i] = readByteFromPixels(HEADER_BYTES + i, stegoImage);
-        }
-
-        //Verify integrity
-        byte computed = checksum(payload);
-        byte stored = readByteFromPixels(HEADER_BYTES + dataLen, stegoImage);
-        if (computed != stored) {
-            throw new IllegalStateException("Checksum mismatch: data may be corrupted");
-        }
-
-        return payload;
+        return dataLen;
     }
 }
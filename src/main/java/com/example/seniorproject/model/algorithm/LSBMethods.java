@@ -59,6 +59,37 @@ class LSBMethods {
         image.setRGB(x, y, newPixel);
     }
 
+    //Stores one byte in a single pixel using 3-3-2 encoding - 3 bits in Red, 3 bits in Green, 2 bits in Blue
+    static void storeByte332(byte secretByte, int pixelIndex, BufferedImage img) {
+        int val = secretByte & 0xFF;
+        int x = pixelIndex % img.getWidth();
+        int y = pixelIndex / img.getWidth();
+        int rgb = img.getRGB(x, y);
+        int alpha = (rgb >> 24) & 0xFF;
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+
+        //Replace the lowest 3, 3 and 2 bits of each channel with secret bits
+        red = (red & 0xF8) | ((val >> 5) & 0x07);
+        green = (green & 0xF8) | ((val >> 2) & 0x07);
+        blue = (blue & 0xFC) | ( val & 0x03);
+
+        img.setRGB(x, y, (alpha << 24) | (red << 16) | (green << 8) | blue);
+    }
+
+    //Read back the byte from a single pixel 
+    static byte readByte332(int pixelIndex, BufferedImage img) {
+        int x = pixelIndex % img.getWidth();
+        int y = pixelIndex / img.getWidth();
+        int rgb = img.getRGB(x, y);
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+
+        return (byte) (((red & 0x07) << 5) | ((green & 0x07) << 2) | (blue & 0x03));
+    }
+
     //Copy of an image so the original stays untouched
     static BufferedImage copyImage(BufferedImage original) {
         int w = original.getWidth();
@@ -68,6 +99,19 @@ class LSBMethods {
         return copy;
     }
 
+    //Magic, 4-byte big-endian length, payload and checksum - the byte stream the keyed algorithms store
+    static byte[] frame(byte magic0, byte magic1, byte[] payload) {
+        byte[] framed = new byte[payload.length + 7];
+        framed[0] = magic0;
+        framed[1] = magic1;
+        for (int i = 0; i < 4; i++) {
+            framed[2 + i] = (byte) (payload.length >> (24 - 8 * i));
+        }
+        System.arraycopy(payload, 0, framed, 6, payload.length);
+        framed[framed.length - 1] = checksum(payload);
+        return framed;
+    }
+
     //XOR checksum for data integrity
     static byte checksum(byte[] data) {
         byte xor = 0;
@@ -0,0 +1,115 @@
+package com.example.seniorproject.model.algorithm;
+
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/*
+ Embeds several independent payloads, each under its own keyed algorithm, into one cover
+ Embedding them one after the other copies the image once per payload and lets a later payload silently overwrite
+ bits of an earlier one. Here the cover is read into one ARGB array, every payload's byte stream (magic, length, data,
+ checksum) is written into that array at exactly the positions its own algorithm would use, and the array becomes the
+ stego image in a single write. Each payload is then extracted with its own algorithm and key as usual.
+ Every pixel remembers which of its bits a payload has claimed. A later payload may reuse a claimed bit only when it
+ needs the same value there; otherwise the embed stops with an IllegalArgumentException instead of damaging the
+ earlier payload. Collisions become likely once the payload sizes multiplied together approach the slot count.
+ Supported are Randomized LSB (eight channel LSBs per slot) and both Josephus versions (one 3-3-2 byte per pixel);
+ sequential LSB and k-bit LSB always start at the first pixel, so two of them can never share a cover.
+*/
+public final class MultiPayloadEmbedder {
+
+    //Bits of a pixel one 3-3-2 byte occupies: low 3 of red and green, low 2 of blue
+    private static final int MASK_332 = 0x070703;
+
+    public record Payload(SteganographyAlgorithm algorithm, byte[] secret) {}
+
+    //Framed bytes of one payload and where they go
+    private record Stream(byte[] framed, int[] positions, boolean packed332) {}
+
+    private MultiPayloadEmbedder() {}
+
+    public static BufferedImage embed(BufferedImage coverImage, List<Payload> payloads, ExecutionContext context) {
+        if (payloads.isEmpty()) throw new IllegalArgumentException("At least one payload is needed");
+        int w = coverImage.getWidth(), h = coverImage.getHeight();
+        long totalBytes = 0;
+        for (Payload payload : payloads) totalBytes += payload.secret().length;
+        PhaseTags tags = PhaseTags.of(MultiPayloadEmbedder.class.getSimpleName(), coverImage, (int) Math.min(Integer.MAX_VALUE, totalBytes));
+
+        List<Stream> streams = Phase.measure("permutation", tags, () -> payloads.stream().map(p -> stream(coverImage, p)).toList());
+        context.checkCancelled();
+
+        int[] argb = Phase.measure("copy", tags, () -> coverImage.getRGB(0, 0, w, h, null, 0, w));
+        int[] claimed = new int[argb.length];
+        long framedBytes = 0;
+        for (Stream stream : streams) framedBytes += stream.framed().length;
+        context.begin(framedBytes);
+
+        //Sequential: a later payload's check depends on every bit claimed before it
+        Phase.run("embed loop", tags, () -> {
+            for (int s = 0; s < streams.size(); s++) {
+                Stream stream = streams.get(s);
+                int number = s + 1;
+                ParallelRange.forEachSerial(0, stream.framed().length, context, i -> {
+                    if (stream.packed332()) {
+                        store332(stream.framed()[i], stream.positions()[i], argb, claimed, w, number);
+                    } else {
+                        storeSlot(stream.framed()[i], stream.positions()[i], argb, claimed, w, number);
+                    }
+                });
+            }
+        });
+
+        return Phase.measure("write back", tags, () -> {
+            BufferedImage stegoImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            stegoImage.setRGB(0, 0, w, h, argb, 0, w);
+            return stegoImage;
+        });
+    }
+
+    private static Stream stream(BufferedImage coverImage, Payload payload) {
+        byte[] secret = payload.secret() == null ? new byte[0] : payload.secret();
+        return switch (payload.algorithm()) {
+            case RandomizedLSBAlgorithm randomized -> {
+                byte[] framed = randomized.frame(secret);
+                yield new Stream(framed, randomized.positions(coverImage, framed.length), false);
+            }
+            case JosephusLSB332Algorithm josephus -> {
+                byte[] framed = josephus.frame(secret);
+                yield new Stream(framed, josephus.positions(coverImage, framed.length), true);
+            }
+            case JosephusLSB332V2Algorithm josephus -> {
+                byte[] framed = josephus.frame(secret);
+                yield new Stream(framed, josephus.positions(coverImage, framed.length), true);
+            }
+            default -> throw new IllegalArgumentException(payload.algorithm().getClass().getSimpleName()
+                    + " cannot share a cover with other payloads; use Randomized LSB or a Josephus algorithm");
+        };
+    }
+
+    //Same bits as LSBMethods.storeByteInPixels: bit i of the byte goes to LSB number slot * 8 + i, three per pixel
+    private static void storeSlot(byte value, int slot, int[] argb, int[] claimed, int width, int payload) {
+        for (int i = 0; i < 8; i++) {
+            int bitIndex = slot * 8 + i;
+            int shift = 16 - 8 * (bitIndex % 3);
+            claim(bitIndex / 3, 1 << shift, ((value >> i) & 1) << shift, argb, claimed, width, payload);
+        }
+    }
+
+    //Same bits as LSBMethods.storeByte332
+    private static void store332(byte value, int pixel, int[] argb, int[] claimed, int width, int payload) {
+        int v = value & 0xFF;
+        claim(pixel, MASK_332, ((v >> 5) & 0x07) << 16 | ((v >> 2) & 0x07) << 8 | (v & 0x03), argb, claimed, width, payload);
+    }
+
+    //Writes the bits, unless an earlier payload already holds one of them with a different value
+    private static void claim(int pixel, int mask, int bits, int[] argb, int[] claimed, int width, int payload) {
+        if (((argb[pixel] ^ bits) & claimed[pixel] & mask) != 0) {
+            throw new IllegalArgumentException("Payload " + payload + " collides with an earlier payload at pixel ("
+                    + pixel % width + ", " + pixel / width + "); use another key or a smaller payload");
+        }
+        argb[pixel] = (argb[pixel] & ~mask) | bits;
+        claimed[pixel] |= mask;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.seniorproject.model.algorithm;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+//Splits an index range in halves and runs the pieces on the common ForkJoinPool
+//Progress and cancellation are checked once per PROGRESS_STRIDE indices
+final class ParallelRange extends RecursiveAction {
+
+    private static final int PROGRESS_STRIDE = 1024;
+
+    private final int from;
+    private final int to;
+    private final int grain;
+    private final int align;
+    private final ExecutionContext context;
+    private final IntConsumer action;
+
+    private ParallelRange(int from, int to, int grain, int align, ExecutionContext context, IntConsumer action) {
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.align = align;
+        this.context = context;
+        this.action = action;
+    }
+
+    //Calls action for every index in [from, to); pieces are never smaller than grain
+    //and every split point is a multiple of align, so callers can keep pieces on pixel boundaries
+    static void forEach(int from, int to, int grain, int align, ExecutionContext context, IntConsumer action) {
+        if (to - from <= grain) {
+            forEachSerial(from, to, context, action);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new ParallelRange(from, to, grain, align, context, action));
+    }
+
+    //Same loop on the calling thread, with the same progress and cancellation checks
+    static void forEachSerial(int from, int to, ExecutionContext context, IntConsumer action) {
+        for (int start = from; start < to; start += PROGRESS_STRIDE) {
+            context.checkCancelled();
+            int end = Math.min(to, start + PROGRESS_STRIDE);
+            for (int i = start; i < end; i++) {
+                action.accept(i);
+            }
+            context.advance(end - start);
+        }
+    }
+
+    @Override
+    protected void compute() {
+        int mid = from + (to - from) / 2;
+        mid -= Math.floorMod(mid, align);
+        if (to - from <= grain || mid <= from) {
+            forEachSerial(from, to, context, action);
+            return;
+        }
+        invokeAll(new ParallelRange(from, mid, grain, align, context, action),
+                  new ParallelRange(mid, to, grain, align, context, action));
+    }
+}
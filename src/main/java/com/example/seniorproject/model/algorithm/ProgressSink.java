@@ -0,0 +1,10 @@
+package com.example.seniorproject.model.algorithm;
+
+//Receives progress from a running embed or extract; a negative done value means the amount of work is unknown
+@FunctionalInterface
+public interface ProgressSink {
+
+    ProgressSink NONE = (done, total) -> {};
+
+    void update(long done, long total);
+}
@@ -1,9 +1,10 @@
 package com.example.seniorproject.model.algorithm;
 
+import com.example.seniorproject.model.metrics.Phase;
+import com.example.seniorproject.model.metrics.PhaseTags;
+
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 
 import static com.example.seniorproject.model.algorithm.LSBMethods.checksum;
@@ -15,6 +16,7 @@ import static com.example.seniorproject.model.algorithm.LSBMethods.storeByteInPi
  Randomized LSB steganography.
  Unlike the sequential LSB algorithm, byte slots are shuffled using a key so the hidden data is scattered across the image.
  Without the correct key, the data cannot be recovered.
+ In parallel mode the payload slots are spread over the common ForkJoinPool once the slot order is known.
 */
 
 //Magic bytes are used to check if the key is the correct one
@@ -25,98 +27,184 @@ public class RandomizedLSBAlgorithm implements SteganographyAlgorithm {
     private static final int MAGIC_BYTES = 2;
     private static final int HEADER_BYTES = 4;
     private static final int CHECKSUM_BYTES = 1;
+    private static final int PARALLEL_GRAIN = 4096;
 
     private final int key;
+    private final boolean parallel;
 
     public RandomizedLSBAlgorithm(int key) {
+        this(key, false);
+    }
+
+    public RandomizedLSBAlgorithm(int key, boolean parallel) {
         this.key = key;
+        this.parallel = parallel;
     }
 
     //Embeds secret data at shuffled positions so it is scattered across the image
     @Override
-    public BufferedImage embed(BufferedImage coverImage, byte[] secret) {
+    public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
         byte[] payload = secret == null ? new byte[0] : secret;
+        PhaseTags tags = phaseTags(coverImage, payload.length);
 
-        List<Integer> order = getShuffledOrder(coverImage);
+        int[] order = Phase.measure("permutation", tags, () -> getShuffledOrder(coverImage));
+        context.checkCancelled();
 
         int slotsNeeded = MAGIC_BYTES + HEADER_BYTES + payload.length + CHECKSUM_BYTES;
-        if (slotsNeeded > order.size()) {
+        if (slotsNeeded > order.length) {
             throw new IllegalArgumentException("The image is too small to embed this message");
         }
 
-        BufferedImage stegoImage = copyImage(coverImage);
+        BufferedImage stegoImage = Phase.measure("copy", tags, () -> copyImage(coverImage));
+        context.checkCancelled();
 
         int slot = 0;
 
         //Magic bytes let us detect if a message exists during extraction
-        storeByteInPixels(MAGIC_0, order.get(slot++), stegoImage);
-        storeByteInPixels(MAGIC_1, order.get(slot++), stegoImage);
+        storeByteInPixels(MAGIC_0, order[slot++], stegoImage);
+        storeByteInPixels(MAGIC_1, order[slot++], stegoImage);
 
         //Payload length is split into 4 bytes, big-endian
         for (int i = 0; i < HEADER_BYTES; i++) {
             int shift = 24 - 8 * i;
-            storeByteInPixels((byte) ((payload.length >> shift) & 0xFF), order.get(slot++), stegoImage);
+            storeByteInPixels((byte) ((payload.length >> shift) & 0xFF), order[slot++], stegoImage);
         }
 
-        for (byte b : payload) {
-            storeByteInPixels(b, order.get(slot++), stegoImage);
-        }
+        int first = slot;
+        Phase.run("embed loop", tags, () -> storePayload(payload, order, first, stegoImage, context));
+        slot += payload.length;
 
-        storeByteInPixels(checksum(payload), order.get(slot), stegoImage);
+        storeByteInPixels(Phase.measure("checksum", tags, () -> checksum(payload)), order[slot], stegoImage);
 
         return stegoImage;
     }
 
+    @Override
+    public int capacity(BufferedImage coverImage) {
+        return Math.max(0, coverImage.getWidth() * coverImage.getHeight() * 3 / 8 - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES);
+    }
+
     //Extracts hidden data by finding the same shuffled order from the key
     @Override
-    public byte[] extract(BufferedImage stegoImage) {
-        List<Integer> order = getShuffledOrder(stegoImage);
+    public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
+        PhaseTags tags = phaseTags(stegoImage, 0);
+        int[] order = Phase.measure("permutation", tags, () -> getShuffledOrder(stegoImage));
+        context.checkCancelled();
+
+        int dataLen = payloadLength(order, stegoImage);
+        int slot = MAGIC_BYTES + HEADER_BYTES;
+
+        byte[] payload = new byte[dataLen];
+        int first = slot;
+        Phase.run("extract loop", tags.withPayload(dataLen), () -> readPayload(payload, order, first, stegoImage, context));
+        slot += dataLen;
+
+        //Verify integrity
+        byte computed = Phase.measure("checksum", tags.withPayload(dataLen), () -> checksum(payload));
+        byte stored = readByteFromPixels(order[slot], stegoImage);
+        if (computed != stored) {
+            throw new IllegalStateException("Checksum mismatch: data may be corrupted or wrong key used");
+        }
+
+        return payload;
+    }
 
+    //The slot order is rebuilt once per reader, then each read visits only the slots of its range
+    @Override
+    public PayloadReader payloadReader(BufferedImage stegoImage, ExecutionContext context) {
+        int[] order = getShuffledOrder(stegoImage);
+        return (offset, length) -> {
+            Objects.checkFromIndexSize(offset, length, payloadLength(order, stegoImage));
+            byte[] range = new byte[length];
+            int first = MAGIC_BYTES + HEADER_BYTES + offset;
+            context.begin(length);
+            ParallelRange.forEachSerial(0, length, context, i -> range[i] = readByteFromPixels(order[first + i], stegoImage));
+            return range;
+        };
+    }
+
+    //Checks the magic bytes, then reassembles the 4-byte big-endian length header
+    private static int payloadLength(int[] order, BufferedImage stegoImage) {
         int slot = 0;
 
         //If magic bytes don't match, either no data or wrong key
-        byte m0 = readByteFromPixels(order.get(slot++), stegoImage);
-        byte m1 = readByteFromPixels(order.get(slot++), stegoImage);
+        byte m0 = readByteFromPixels(order[slot++], stegoImage);
+        byte m1 = readByteFromPixels(order[slot++], stegoImage);
         if (m0 != MAGIC_0 || m1 != MAGIC_1) {
             throw new IllegalStateException("No hidden message found in this image");
         }
 
-        //Reassemble the 4-byte big-endian header into an int
         int dataLen = 0;
         for (int i = 0; i < HEADER_BYTES; i++) {
-            dataLen = (dataLen << 8) | (0xFF & readByteFromPixels(order.get(slot++), stegoImage));
+            dataLen = (dataLen << 8) | (0xFF & readByteFromPixels(order[slot++], stegoImage));
         }
 
-        int maxLen = order.size() - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES;
+        int maxLen = order.length - MAGIC_BYTES - HEADER_BYTES - CHECKSUM_BYTES;
         if (dataLen < 0 || dataLen > maxLen) {
             throw new IllegalStateException("Could not read message - did you use the right key?");
         }
+        return dataLen;
+    }
 
-        byte[] payload = new byte[dataLen];
-        for (int i = 0; i < dataLen; i++) {
-            payload[i] = readByteFromPixels(order.get(slot++), stegoImage);
-        }
+    //The bytes embed stores, in slot order
+    byte[] frame(byte[] payload) {
+        return LSBMethods.frame(MAGIC_0, MAGIC_1, payload);
+    }
 
-        //Verify integrity
-        byte computed = checksum(payload);
-        byte stored = readByteFromPixels(order.get(slot), stegoImage);
-        if (computed != stored) {
-            throw new IllegalStateException("Checksum mismatch: data may be corrupted or wrong key used");
+    //Slot of every stored byte, for a cover of this size; only the first count are used
+    int[] positions(BufferedImage coverImage, int count) {
+        int[] order = getShuffledOrder(coverImage);
+        if (count > order.length) throw new IllegalArgumentException("The image is too small to embed this message");
+        return order;
+    }
+
+    //Writes the payload bytes to their shuffled slots, starting at order[first]
+    private void storePayload(byte[] payload, int[] order, int first, BufferedImage stegoImage, ExecutionContext context) {
+        if (parallel) {
+            //Neighbouring slots can share a pixel, slots two apart never do - even and odd slots go in separate passes
+            context.begin(2L * payload.length);
+            for (int parity = 0; parity < 2; parity++) {
+                int p = parity;
+                ParallelRange.forEach(0, payload.length, PARALLEL_GRAIN, 1, context, i -> {
+                    int target = order[first + i];
+                    if ((target & 1) == p) storeByteInPixels(payload[i], target, stegoImage);
+                });
+            }
+        } else {
+            context.begin(payload.length);
+            ParallelRange.forEachSerial(0, payload.length, context,
+                    i -> storeByteInPixels(payload[i], order[first + i], stegoImage));
         }
+    }
 
-        return payload;
+    private void readPayload(byte[] payload, int[] order, int first, BufferedImage stegoImage, ExecutionContext context) {
+        context.begin(payload.length);
+        if (parallel) {
+            ParallelRange.forEach(0, payload.length, PARALLEL_GRAIN, 1, context,
+                    i -> payload[i] = readByteFromPixels(order[first + i], stegoImage));
+        } else {
+            ParallelRange.forEachSerial(0, payload.length, context,
+                    i -> payload[i] = readByteFromPixels(order[first + i], stegoImage));
+        }
     }
 
-    //Builds a shuffled list for the given image - the same key always produces the same order
-    private List<Integer> getShuffledOrder(BufferedImage image) {
+    //Builds a shuffled slot order for the given image - the same key always produces the same order
+    //Same swaps as Collections.shuffle(list, new Random(key)) on a primitive array, so existing stego images still decode
+    private int[] getShuffledOrder(BufferedImage image) {
         int totalSlots = (image.getWidth() * image.getHeight() * 3) / 8;
-        List<Integer> order = new ArrayList<>(totalSlots);
+        int[] order = new int[totalSlots];
 
         for (int i = 0; i < totalSlots; i++) {
-            order.add(i);
+            order[i] = i;
         }
 
-        Collections.shuffle(order, new Random(key));
+        Random rnd = new Random(key);
+        for (int i = totalSlots; i > 1; i--) {
+            int j = rnd.nextInt(i);
+            int tmp = order[i - 1];
+            order[i - 1] = order[j];
+            order[j] = tmp;
+        }
         return order;
     }
 }
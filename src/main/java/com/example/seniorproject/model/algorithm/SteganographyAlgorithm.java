@@ -1,11 +1,64 @@
 package com.example.seniorproject.model.algorithm;
 
+import com.example.seniorproject.model.metrics.PhaseTags;
+
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
 
 //Common for all steganography algorithms
 public interface SteganographyAlgorithm {
 
-    BufferedImage embed(BufferedImage coverImage, byte[] secret);
+    //The context receives progress in payload bytes and can stop the run between chunks,
+    //either through its cancellation flag (CancellationException) or its deadline (DeadlineExceededException)
+    BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context);
+
+    byte[] extract(BufferedImage stegoImage, ExecutionContext context);
+
+    //Largest secret, in bytes, that embed accepts for this cover; 0 when even an empty secret does not fit
+    int capacity(BufferedImage coverImage);
+
+    //Bytes offset until offset + length of the payload. The payload checksum covers every byte, so a range is not verified
+    //Algorithms that can find a byte's slot directly read only the slots of the range; the default extracts everything
+    default byte[] extractRange(BufferedImage stegoImage, int offset, int length, ExecutionContext context) {
+        return payloadReader(stegoImage, context).read(offset, length);
+    }
+
+    //Reads several ranges of one stego image's payload, as extractRange does
+    @FunctionalInterface
+    interface PayloadReader {
+        byte[] read(int offset, int length);
+    }
+
+    //Work the reads share is done once per reader and dropped with it. The default extracts the whole payload on the
+    //first read and serves every range from that; algorithms with a ranged extractRange override this
+    default PayloadReader payloadReader(BufferedImage stegoImage, ExecutionContext context) {
+        return new PayloadReader() {
+            private byte[] payload;
+
+            @Override
+            public byte[] read(int offset, int length) {
+                if (payload == null) payload = extract(stegoImage, context);
+                Objects.checkFromIndexSize(offset, length, payload.length);
+                return Arrays.copyOfRange(payload, offset, offset + length);
+            }
+        };
+    }
+
+    //Algorithm field of this algorithm's phase events; algorithms with settings include them
+    default String metricsName() {
+        return getClass().getSimpleName();
+    }
+
+    default PhaseTags phaseTags(BufferedImage image, long payloadBytes) {
+        return PhaseTags.of(metricsName(), image, payloadBytes);
+    }
+
+    default BufferedImage embed(BufferedImage coverImage, byte[] secret) {
+        return embed(coverImage, secret, ExecutionContext.NONE);
+    }
 
-    byte[] extract(BufferedImage stegoImage);
+    default byte[] extract(BufferedImage stegoImage) {
+        return extract(stegoImage, ExecutionContext.NONE);
+    }
 }
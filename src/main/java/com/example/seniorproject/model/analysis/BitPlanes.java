@@ -0,0 +1,139 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/*
+ All 8 bit planes of the R, G and B channels, packed as bitsets
+ Plane p of channel c holds bit p of that channel for every pixel, 64 pixels per long, each row starting on a fresh
+ word. The planes are filled in one pass: eight pixels' channel bytes form an 8x8 bit matrix, and transposing it
+ turns the eight bytes into eight plane bytes. Any plane can then be rendered, counted or compared without rescanning.
+*/
+public final class BitPlanes {
+
+    public static final int PLANES = 8;
+    private static final int CHANNELS = ChannelHistograms.CHANNELS;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    //Index channel * PLANES + plane
+    private final long[][] planes;
+
+    private BitPlanes(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.planes = new long[CHANNELS * PLANES][wordsPerRow * height];
+    }
+
+    public static BitPlanes of(BufferedImage image) {
+        BitPlanes result = new BitPlanes(image.getWidth(), image.getHeight());
+        int[] whole = PixelRows.bandStarts(image.getHeight(), 1);
+        //Chunks cover whole rows and rows start on a word, so no two chunks share a word
+        PixelRows.forEachChunk(image, whole, (band, firstRow, rows, w, argb) -> {
+            for (int row = 0; row < rows; row++) {
+                result.fillRow(firstRow + row, argb, row * w);
+            }
+        });
+        return result;
+    }
+
+    //Deep copy, to be patched with refill while the original stays valid
+    BitPlanes copy() {
+        BitPlanes copy = new BitPlanes(width, height);
+        for (int i = 0; i < planes.length; i++) System.arraycopy(planes[i], 0, copy.planes[i], 0, planes[i].length);
+        return copy;
+    }
+
+    //Slices again columns x0 until x1 of rows y0 until y1, where x0 is a multiple of 64 and x1 one or the width
+    //argb holds just that rectangle, stride pixels per row
+    void refill(int x0, int x1, int y0, int y1, int[] argb, int stride) {
+        for (int y = y0; y < y1; y++) {
+            fillWords(y, argb, (y - y0) * stride - x0, x0 >>> 6, (x1 + 63) >>> 6);
+        }
+    }
+
+    //Slices one row, 64 pixels (one word per plane) at a time
+    private void fillRow(int y, int[] argb, int offset) {
+        fillWords(y, argb, offset, 0, wordsPerRow);
+    }
+
+    private void fillWords(int y, int[] argb, int offset, int fromWord, int toWord) {
+        long[] words = new long[CHANNELS * PLANES];
+        for (int word = fromWord; word < toWord; word++) {
+            Arrays.fill(words, 0);
+            int x0 = word << 6;
+            for (int block = 0; block < 8 && x0 + 8 * block < width; block++) {
+                int start = x0 + 8 * block;
+                int end = Math.min(width, start + 8);
+                for (int c = 0; c < CHANNELS; c++) {
+                    int shift = 16 - 8 * c;
+                    //Byte j of the matrix is the channel value of pixel j
+                    long matrix = 0;
+                    for (int x = start; x < end; x++) {
+                        matrix |= (long) ((argb[offset + x] >> shift) & 0xFF) << (8 * (x - start));
+                    }
+                    matrix = transpose8(matrix);
+                    //Now byte p holds bit p of the 8 pixels
+                    for (int p = 0; p < PLANES; p++) {
+                        words[c * PLANES + p] |= ((matrix >>> (8 * p)) & 0xFF) << (8 * block);
+                    }
+                }
+            }
+            int index = y * wordsPerRow + word;
+            for (int i = 0; i < words.length; i++) planes[i][index] = words[i];
+        }
+    }
+
+    //Transposes an 8x8 bit matrix stored row-per-byte (Hacker's Delight, 7-3)
+    static long transpose8(long x) {
+        long t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+        x = x ^ t ^ (t << 7);
+        t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+        x = x ^ t ^ (t << 14);
+        t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+        return x ^ t ^ (t << 28);
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+    public int wordsPerRow() { return wordsPerRow; }
+
+    //Packed bits of one plane, row after row - shared, not copied
+    public long[] plane(int channel, int plane) {
+        return planes[channel * PLANES + plane];
+    }
+
+    public boolean bit(int channel, int plane, int x, int y) {
+        return (plane(channel, plane)[y * wordsPerRow + (x >>> 6)] >>> (x & 63) & 1) != 0;
+    }
+
+    //Number of pixels with this bit set
+    public long countOnes(int channel, int plane) {
+        long count = 0;
+        for (long word : plane(channel, plane)) count += Long.bitCount(word);
+        return count;
+    }
+
+    //Number of pixels where this bit differs from the same bit in another image of the same size
+    public long countDifferences(BitPlanes other, int channel, int plane) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Bit planes must come from images of the same size");
+        }
+        long[] a = plane(channel, plane), b = other.plane(channel, plane);
+        long count = 0;
+        for (int i = 0; i < a.length; i++) count += Long.bitCount(a[i] ^ b[i]);
+        return count;
+    }
+
+    //One plane of all three channels, 1 bit each - plane 0 is the LSB X-ray
+    public PackedXray xray(int plane) {
+        return new PackedXray(width, height, wordsPerRow, plane(0, plane), plane(1, plane), plane(2, plane));
+    }
+
+    //The same plane expanded to full brightness
+    public BufferedImage render(int plane) {
+        return xray(plane).toBufferedImage();
+    }
+}
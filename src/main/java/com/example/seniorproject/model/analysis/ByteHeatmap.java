@@ -0,0 +1,158 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ Difference heatmap in one byte and one bit per pixel
+ The heatmap shows |original - stego| per channel times the amplification, clipped at 255, so only small differences
+ have distinct colours. Each channel's difference is kept up to 7, which is exact for every algorithm in the app up
+ to 3-bit LSB; 4-bit LSB differences above 7 show as 7, still past the 255 clip. The byte holds red and green in
+ 3 bits each and the low 2 bits of blue, and a separate bit plane holds blue's third bit. Its rows are padded to
+ whole 64-bit words, so 64-pixel-aligned tiles or rows filled in parallel never share a word.
+*/
+public final class ByteHeatmap implements CompactRaster {
+
+    private final int width;
+    private final int height;
+    private final byte[] levels;
+    private final long[] blueHigh;
+    private final int amplification;
+    private final int modifiedPixels;
+
+    ByteHeatmap(int width, int height, byte[] levels, long[] blueHigh, int amplification, int modifiedPixels) {
+        this.width = width;
+        this.height = height;
+        this.levels = levels;
+        this.blueHigh = blueHigh;
+        this.amplification = amplification;
+        this.modifiedPixels = modifiedPixels;
+    }
+
+    public static ByteHeatmap of(BufferedImage original, BufferedImage stego, int amplification) {
+        return of(DirtyRegions.of(original, stego), amplification);
+    }
+
+    //Only the differing row spans are visited; the rest of the levels stay 0
+    public static ByteHeatmap of(DirtyRegions regions, int amplification) {
+        int w = regions.width(), h = regions.height();
+        byte[] levels = new byte[w * h];
+        long[] blueHigh = bluePlane(w, h);
+        long modified = regions.sum((y, x0, x1, o, s, offset) -> {
+            int count = 0;
+            for (int x = x0; x <= x1; x++) {
+                int level = level(o[offset + x], s[offset + x]);
+                if (level != 0) count++;
+                put(levels, blueHigh, w, x, y, level);
+            }
+            return count;
+        });
+        return new ByteHeatmap(w, h, levels, blueHigh, amplification, (int) modified);
+    }
+
+    @Override public int width() { return width; }
+    @Override public int height() { return height; }
+
+    int amplification() {
+        return amplification;
+    }
+
+    //The low level bytes, row-major - shared, not copied
+    byte[] levels() {
+        return levels;
+    }
+
+    //Blue's third bit, one padded row of words per image row - shared, not copied
+    long[] blueHigh() {
+        return blueHigh;
+    }
+
+    public int modifiedPixels() {
+        return modifiedPixels;
+    }
+
+    @Override
+    public int argb(int x, int y) {
+        return color(get(levels, blueHigh, width, x, y), amplification);
+    }
+
+    //9-bit difference level of one pixel pair: blue's third bit, then red, green and blue's low 2 bits; 0 means unchanged
+    static int level(int original, int stego) {
+        int r = Math.min(7, Math.abs(((original >> 16) & 0xFF) - ((stego >> 16) & 0xFF)));
+        int g = Math.min(7, Math.abs(((original >> 8) & 0xFF) - ((stego >> 8) & 0xFF)));
+        int b = Math.min(7, Math.abs((original & 0xFF) - (stego & 0xFF)));
+        return ((b >> 2) << 8) | (r << 5) | (g << 2) | (b & 3);
+    }
+
+    //Each channel's difference times the amplification
+    static int color(int level, int amplification) {
+        int r = Math.min(255, ((level >>> 5) & 7) * amplification);
+        int g = Math.min(255, ((level >>> 2) & 7) * amplification);
+        int b = Math.min(255, (((level >>> 6) & 4) | (level & 3)) * amplification);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    static long[] bluePlane(int width, int height) {
+        return new long[wordsPerRow(width) * height];
+    }
+
+    private static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    static void put(byte[] levels, long[] blueHigh, int width, int x, int y, int level) {
+        levels[y * width + x] = (byte) level;
+        int word = y * wordsPerRow(width) + (x >>> 6);
+        if (level > 0xFF) {
+            blueHigh[word] |= 1L << x;
+        } else {
+            blueHigh[word] &= ~(1L << x);
+        }
+    }
+
+    static int get(byte[] levels, long[] blueHigh, int width, int x, int y) {
+        int high = (int) (blueHigh[y * wordsPerRow(width) + (x >>> 6)] >>> x) & 1;
+        return (high << 8) | (levels[y * width + x] & 0xFF);
+    }
+
+    //Sets pixels x0 to x1 - 1 of row y to unchanged
+    static void clear(byte[] levels, long[] blueHigh, int width, int y, int x0, int x1) {
+        Arrays.fill(levels, y * width + x0, y * width + x1, (byte) 0);
+        int row = y * wordsPerRow(width);
+        for (int x = x0; x < x1; x = (x | 63) + 1) {
+            int end = Math.min(x1, (x | 63) + 1);
+            long bits = (end - x == 64 ? -1L : (1L << (end - x)) - 1) << x;
+            blueHigh[row + (x >>> 6)] &= ~bits;
+        }
+    }
+
+    //Size, amplification, count and levels, for the result cache
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(amplification);
+        out.writeInt(modifiedPixels);
+        out.write(levels);
+        for (long word : blueHigh) out.writeLong(word);
+    }
+
+    public static ByteHeatmap readFrom(DataInput in) throws IOException {
+        int width = in.readInt(), height = in.readInt(), amplification = in.readInt(), modifiedPixels = in.readInt();
+        if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Invalid heatmap size " + width + " × " + height + ".");
+        }
+        byte[] levels = new byte[width * height];
+        in.readFully(levels);
+        long[] blueHigh = bluePlane(width, height);
+        for (int i = 0; i < blueHigh.length; i++) blueHigh[i] = in.readLong();
+        return new ByteHeatmap(width, height, levels, blueHigh, amplification, modifiedPixels);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return levels.length + (long) blueHigh.length * Long.BYTES;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+
+/*
+ Per-channel value histograms of an image, split into horizontal bands
+ Counts live in one flat long[] per band: index channel * 256 + value, channels in R, G, B order.
+ All bands are filled in a single parallel pass; every chunk counts into its own int[] and adds it to its band once.
+*/
+public final class ChannelHistograms {
+
+    public static final int CHANNELS = 3;
+    public static final int VALUES = 256;
+
+    private final long[][] bands;
+    private final int[] bandStarts;
+    private final int width;
+
+    private ChannelHistograms(long[][] bands, int[] bandStarts, int width) {
+        this.bands = bands;
+        this.bandStarts = bandStarts;
+        this.width = width;
+    }
+
+    //Histograms for bandCount row bands; fewer bands if the image has fewer rows
+    public static ChannelHistograms of(BufferedImage image, int bandCount) {
+        int count = Math.max(1, Math.min(bandCount, image.getHeight()));
+        int[] starts = PixelRows.bandStarts(image.getHeight(), count);
+        long[][] bands = new long[count][CHANNELS * VALUES];
+
+        PixelRows.forEachChunk(image, starts, (band, firstRow, rows, w, argb) -> {
+            int[] local = new int[CHANNELS * VALUES];
+            for (int rgb : argb) {
+                local[(rgb >> 16) & 0xFF]++;
+                local[VALUES + ((rgb >> 8) & 0xFF)]++;
+                local[2 * VALUES + (rgb & 0xFF)]++;
+            }
+            long[] target = bands[band];
+            synchronized (target) {
+                for (int i = 0; i < local.length; i++) target[i] += local[i];
+            }
+        });
+        return new ChannelHistograms(bands, starts, image.getWidth());
+    }
+
+    public int bandCount() {
+        return bands.length;
+    }
+
+    //Counts for one band - the array is shared, not copied
+    public long[] band(int band) {
+        return bands[band];
+    }
+
+    public long bandPixels(int band) {
+        return (long) (bandStarts[band + 1] - bandStarts[band]) * width;
+    }
+
+    //Sum over all bands
+    public long[] total() {
+        long[] total = new long[CHANNELS * VALUES];
+        for (long[] band : bands) {
+            for (int i = 0; i < total.length; i++) total[i] += band[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+
+/*
+ Chi-square (pairs of values) attack, after Westfeld and Pfitzmann
+ LSB replacement moves values only inside the pairs (2k, 2k+1), so a full payload evens out the two counts of every pair.
+ The test compares the even counts to the pair means; a p-value near 1 means the pairs look equalised, i.e. embedded.
+ The test is repeated on a growing window: the first band of rows, then the first two, and so on. Sequential embedding
+ fills the image from the top, so the window stays positive until it runs past the payload; the share of pixels in
+ the last positive window estimates the embedding rate.
+*/
+public final class ChiSquareAttack {
+
+    public static final int DEFAULT_WINDOWS = 32;
+    //Pairs with a smaller expected count are left out - the chi-square approximation is poor there
+    private static final double MIN_EXPECTED = 5;
+    private static final double EMBEDDED_P = 0.5;
+
+    //windowPValues[i] is the p-value of the first i + 1 bands taken together; the last one covers the whole image
+    public record Result(double pValue, double estimatedRate, double[] windowPValues) {}
+
+    private ChiSquareAttack() {}
+
+    public static Result analyze(BufferedImage image) {
+        return analyze(ChannelHistograms.of(image, DEFAULT_WINDOWS));
+    }
+
+    public static Result analyze(ChannelHistograms histograms) {
+        int windows = histograms.bandCount();
+        double[] windowP = new double[windows];
+        long[] window = new long[ChannelHistograms.CHANNELS * ChannelHistograms.VALUES];
+        long embeddedPixels = 0, windowPixels = 0;
+        boolean positive = true;
+        for (int b = 0; b < windows; b++) {
+            long[] band = histograms.band(b);
+            for (int i = 0; i < window.length; i++) window[i] += band[i];
+            windowPixels += histograms.bandPixels(b);
+            windowP[b] = pValue(window);
+            positive &= windowP[b] >= EMBEDDED_P;
+            if (positive) embeddedPixels = windowPixels;
+        }
+        double rate = windowPixels == 0 ? 0 : embeddedPixels / (double) windowPixels;
+        return new Result(windowP[windows - 1], rate, windowP);
+    }
+
+    //Probability that the pair counts are as even as an embedded image would make them
+    static double pValue(long[] histogram) {
+        double chi = 0;
+        int categories = 0;
+        for (int i = 0; i < histogram.length; i += 2) {
+            double expected = (histogram[i] + histogram[i + 1]) / 2.0;
+            if (expected < MIN_EXPECTED) continue;
+            double diff = histogram[i] - expected;
+            chi += diff * diff / expected;
+            categories++;
+        }
+        if (categories < 2) return 0;
+        return Gamma.regularizedQ((categories - 1) / 2.0, chi / 2);
+    }
+}
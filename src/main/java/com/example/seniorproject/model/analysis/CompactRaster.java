@@ -0,0 +1,72 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+
+//A result image kept in a packed form and expanded to ARGB only for the part being shown
+public interface CompactRaster {
+
+    int width();
+
+    int height();
+
+    //Expanded colour of one pixel
+    int argb(int x, int y);
+
+    //A decoded image seen through the same interface, so viewers treat inputs and results alike
+    static CompactRaster of(BufferedImage image) {
+        return new CompactRaster() {
+            @Override public int width() { return image.getWidth(); }
+            @Override public int height() { return image.getHeight(); }
+            @Override public int argb(int x, int y) { return image.getRGB(x, y); }
+
+            @Override
+            public long sizeInBytes() {
+                return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+            }
+
+            @Override
+            public int[] expand(int x0, int y0, int w, int h) {
+                return image.getRGB(x0, y0, w, h, null, 0, w);
+            }
+        };
+    }
+
+    //Memory held by the packed pixels
+    long sizeInBytes();
+
+    //Exact ARGB pixels of one tile, row-major
+    default int[] expand(int x0, int y0, int w, int h) {
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                out[y * w + x] = argb(x0 + x, y0 + y);
+            }
+        }
+        return out;
+    }
+
+    //Nearest-neighbour sample of the whole raster at outW x outH, for thumbnails and previews
+    default int[] sample(int outW, int outH) {
+        return sample(outW, outH, new int[outW * outH]);
+    }
+
+    //Same, written into an existing array so a preview can be redrawn in place
+    default int[] sample(int outW, int outH, int[] out) {
+        for (int y = 0; y < outH; y++) {
+            int sy = (int) ((long) y * height() / outH);
+            for (int x = 0; x < outW; x++) {
+                out[y * outW + x] = argb((int) ((long) x * width() / outW), sy);
+            }
+        }
+        return out;
+    }
+
+    //Full-size expansion, for saving or comparing
+    default BufferedImage toBufferedImage() {
+        BufferedImage out = new BufferedImage(width(), height(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height(); y++) {
+            out.setRGB(0, y, width(), 1, expand(0, y, width(), 1), 0, width());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*
+ Where an original and a stego image actually differ, found with Arrays.mismatch over whole rows
+ Each row is compared from the left with Arrays.mismatch and, if it differs, scanned back from the right, giving the
+ span of columns that can hold differences. Runs of differing rows are also merged into bounding rectangles.
+ Comparison work then visits only those spans; every other row is known to be zero-difference without reading it.
+ Sequential embedding with a short message leaves a band of a few rows at the top, so most of the image is skipped.
+ Differences in alpha alone also mark a row, which only costs a little extra work.
+*/
+public final class DirtyRegions {
+
+    public record Rect(int x, int y, int width, int height) {}
+
+    //Work for one differing row: pixel x of the row is at o[offset + x] and s[offset + x]; only x0..x1 can differ
+    @FunctionalInterface
+    public interface RowFunction {
+        long apply(int y, int x0, int x1, int[] o, int[] s, int offset);
+    }
+
+    private final BufferedImage original;
+    private final BufferedImage stego;
+    private final int width;
+    private final int height;
+    //Backing arrays when both images share one int-packed layout, otherwise null and rows are read one by one
+    private final int[] originalPixels;
+    private final int[] stegoPixels;
+    //Span of each row that differs, first > last when the row is identical
+    private final int[] first;
+    private final int[] last;
+    private final int[] dirtyRows;
+
+    private DirtyRegions(BufferedImage original, BufferedImage stego) {
+        this.original = original;
+        this.stego = stego;
+        this.width = stego.getWidth();
+        this.height = stego.getHeight();
+        boolean sameLayout = original.getType() == stego.getType();
+        this.originalPixels = sameLayout ? PixelRows.direct(original) : null;
+        this.stegoPixels = sameLayout ? PixelRows.direct(stego) : null;
+        this.first = new int[height];
+        this.last = new int[height];
+        IntStream.range(0, height).parallel().forEach(this::scanRow);
+        this.dirtyRows = IntStream.range(0, height).filter(y -> first[y] <= last[y]).toArray();
+    }
+
+    public static DirtyRegions of(BufferedImage original, BufferedImage stego) {
+        if (original.getWidth() != stego.getWidth() || original.getHeight() != stego.getHeight()) {
+            throw new IllegalArgumentException("Original and stego images must be the same size for comparison.");
+        }
+        return new DirtyRegions(original, stego);
+    }
+
+    private void scanRow(int y) {
+        int[] o, s;
+        int from, to;
+        if (originalPixels != null && stegoPixels != null) {
+            o = originalPixels;
+            s = stegoPixels;
+            from = y * width;
+        } else {
+            o = original.getRGB(0, y, width, 1, null, 0, width);
+            s = stego.getRGB(0, y, width, 1, null, 0, width);
+            from = 0;
+        }
+        to = from + width;
+        int mismatch = Arrays.mismatch(o, from, to, s, from, to);
+        if (mismatch < 0) {
+            first[y] = 0;
+            last[y] = -1;
+            return;
+        }
+        int end = to - 1;
+        while (o[end] == s[end]) end--;
+        first[y] = mismatch;
+        last[y] = end - from;
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+
+    public boolean identical() {
+        return dirtyRows.length == 0;
+    }
+
+    public int dirtyRowCount() {
+        return dirtyRows.length;
+    }
+
+    //Pixels inside the row spans - an upper bound on how many pixels differ
+    public long dirtyPixels() {
+        long count = 0;
+        for (int y : dirtyRows) count += last[y] - first[y] + 1;
+        return count;
+    }
+
+    //One rectangle per run of consecutive differing rows, as wide as the union of their spans
+    public List<Rect> rectangles() {
+        List<Rect> rects = new ArrayList<>();
+        for (int i = 0; i < dirtyRows.length; ) {
+            int top = dirtyRows[i], left = first[top], right = last[top];
+            int j = i + 1;
+            while (j < dirtyRows.length && dirtyRows[j] == dirtyRows[j - 1] + 1) {
+                left = Math.min(left, first[dirtyRows[j]]);
+                right = Math.max(right, last[dirtyRows[j]]);
+                j++;
+            }
+            rects.add(new Rect(left, top, right - left + 1, dirtyRows[j - 1] - top + 1));
+            i = j;
+        }
+        return rects;
+    }
+
+    //Bounding box of every difference, or null when the images are identical
+    public Rect bounds() {
+        if (identical()) return null;
+        int left = width, right = -1;
+        for (int y : dirtyRows) {
+            left = Math.min(left, first[y]);
+            right = Math.max(right, last[y]);
+        }
+        int top = dirtyRows[0], bottom = dirtyRows[dirtyRows.length - 1];
+        return new Rect(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    //Sum of f over the differing rows, in parallel; identical rows contribute nothing and are never read
+    public long sum(RowFunction f) {
+        return IntStream.of(dirtyRows).parallel().mapToLong(y -> applyRow(y, f)).sum();
+    }
+
+    //Same for the differing rows among y0..y1 inclusive, in order on the calling thread
+    public long sumRows(int y0, int y1, RowFunction f) {
+        long total = 0;
+        for (int y = Math.max(0, y0); y <= Math.min(height - 1, y1); y++) {
+            if (first[y] <= last[y]) total += applyRow(y, f);
+        }
+        return total;
+    }
+
+    //f over every row in parallel, identical ones included with x0 > x1; for work that needs every pixel of both
+    //images, such as SSIM, so it reads them the same way as the scan - straight from the backing arrays when possible
+    //An identical row read through getRGB is read once and passed as both images
+    void forEachRow(RowFunction f) {
+        IntStream.range(0, height).parallel().forEach(y -> {
+            if (first[y] <= last[y] || (originalPixels != null && stegoPixels != null)) {
+                applyRow(y, f);
+            } else {
+                int[] row = PixelRows.read(original, y, 1);
+                f.apply(y, first[y], last[y], row, row, 0);
+            }
+        });
+    }
+
+    private long applyRow(int y, RowFunction f) {
+        if (originalPixels != null && stegoPixels != null) {
+            return f.apply(y, first[y], last[y], originalPixels, stegoPixels, y * width);
+        }
+        return f.apply(y, first[y], last[y], PixelRows.read(original, y, 1), PixelRows.read(stego, y, 1), 0);
+    }
+}
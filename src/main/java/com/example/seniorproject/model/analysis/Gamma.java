@@ -0,0 +1,58 @@
+package com.example.seniorproject.model.analysis;
+
+//Regularized incomplete gamma function, for chi-square tail probabilities
+//Series below a + 1, continued fraction above (Numerical Recipes, 6.2)
+final class Gamma {
+
+    private static final int MAX_ITERATIONS = 1000;
+    private static final double EPSILON = 1e-14;
+    private static final double TINY = 1e-300;
+    private static final double[] LANCZOS = {
+            76.18009172947146, -86.50532032941677, 24.01409824083091,
+            -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5
+    };
+
+    private Gamma() {}
+
+    //Q(a, x) = 1 - P(a, x); the chi-square survival function is Q(dof / 2, chi / 2)
+    static double regularizedQ(double a, double x) {
+        if (x <= 0) return 1;
+        if (x < a + 1) return 1 - series(a, x);
+        return continuedFraction(a, x);
+    }
+
+    private static double series(double a, double x) {
+        double term = 1 / a, sum = term;
+        for (int n = 1; n < MAX_ITERATIONS; n++) {
+            term *= x / (a + n);
+            sum += term;
+            if (Math.abs(term) < Math.abs(sum) * EPSILON) break;
+        }
+        return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+    }
+
+    private static double continuedFraction(double a, double x) {
+        double b = x + 1 - a, c = 1 / TINY, d = 1 / b, h = d;
+        for (int i = 1; i < MAX_ITERATIONS; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < TINY) d = TINY;
+            c = b + an / c;
+            if (Math.abs(c) < TINY) c = TINY;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < EPSILON) break;
+        }
+        return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    static double logGamma(double x) {
+        double y = x, tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double ser = 1.000000000190015;
+        for (double c : LANCZOS) ser += c / ++y;
+        return -tmp + Math.log(2.5066282746310005 * ser / x);
+    }
+}
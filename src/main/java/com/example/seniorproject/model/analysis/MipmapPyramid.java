@@ -0,0 +1,136 @@
+package com.example.seniorproject.model.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ Tiled mipmap pyramid over a CompactRaster, for viewers that show a small window of a very large result
+ Level 0 is full resolution; every further level halves both sides by averaging 2x2 pixels of the level below, down to
+ the first level that fits in one tile. Tiles are TILE x TILE ARGB pixels (smaller at the right and bottom edges) and
+ are built only when asked for, from their four children, so the whole pyramid never exists at once.
+ Tiles asked for are kept in a least recently used cache bounded by tile count; an evicted tile is simply rebuilt.
+ Children built only on the way to a coarser tile are not cached: a zoomed-out tile can need thousands of them, and
+ caching those would evict the tiles on screen. Children already in the cache are reused.
+ Safe to call from several threads - two threads asking for the same missing tile may both build it.
+*/
+public final class MipmapPyramid {
+
+    public static final int TILE = 256;
+    //64 MB of tiles
+    private static final int DEFAULT_MAX_TILES = 256;
+
+    private final CompactRaster source;
+    private final int levels;
+    private final LinkedHashMap<Long, int[]> tiles;
+
+    public MipmapPyramid(CompactRaster source, int maxTiles) {
+        this.source = source;
+        int levels = 1;
+        while (Math.max(source.width(), source.height()) > TILE << (levels - 1)) levels++;
+        this.levels = levels;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    public static MipmapPyramid of(CompactRaster source) {
+        return new MipmapPyramid(source, DEFAULT_MAX_TILES);
+    }
+
+    public CompactRaster source() { return source; }
+    public int levels() { return levels; }
+
+    public int levelWidth(int level) {
+        return (int) ((source.width() + (1L << level) - 1) >> level);
+    }
+
+    public int levelHeight(int level) {
+        return (int) ((source.height() + (1L << level) - 1) >> level);
+    }
+
+    public int tilesX(int level) {
+        return (levelWidth(level) + TILE - 1) / TILE;
+    }
+
+    public int tilesY(int level) {
+        return (levelHeight(level) + TILE - 1) / TILE;
+    }
+
+    public int tileWidth(int level, int tx) {
+        return Math.min(TILE, levelWidth(level) - tx * TILE);
+    }
+
+    public int tileHeight(int level, int ty) {
+        return Math.min(TILE, levelHeight(level) - ty * TILE);
+    }
+
+    //The tile if it is already built, otherwise null - never blocks on building
+    public synchronized int[] cachedTile(int level, int tx, int ty) {
+        return tiles.get(key(level, tx, ty));
+    }
+
+    //The tile's ARGB pixels, row-major, tileWidth x tileHeight; built (with any missing children) and cached if needed
+    public int[] tile(int level, int tx, int ty) {
+        if (level < 0 || level >= levels || tx < 0 || ty < 0 || tx >= tilesX(level) || ty >= tilesY(level)) {
+            throw new IllegalArgumentException("No tile " + tx + "," + ty + " at level " + level);
+        }
+        int[] tile = build(level, tx, ty);
+        synchronized (this) {
+            tiles.put(key(level, tx, ty), tile);
+        }
+        return tile;
+    }
+
+    //The cached tile, or a new one that is not cached
+    private int[] build(int level, int tx, int ty) {
+        int[] tile = cachedTile(level, tx, ty);
+        if (tile != null) return tile;
+        return level == 0
+                ? source.expand(tx * TILE, ty * TILE, tileWidth(0, tx), tileHeight(0, ty))
+                : downsample(level, tx, ty);
+    }
+
+    //Averages 2x2 blocks of the up to four child tiles one level down
+    private int[] downsample(int level, int tx, int ty) {
+        int w = tileWidth(level, tx), h = tileHeight(level, ty);
+        int[] out = new int[w * h];
+        int below = level - 1;
+        for (int j = 0; j < 2; j++) {
+            int cty = 2 * ty + j;
+            if (cty >= tilesY(below)) continue;
+            for (int i = 0; i < 2; i++) {
+                int ctx = 2 * tx + i;
+                if (ctx >= tilesX(below)) continue;
+                int[] child = build(below, ctx, cty);
+                int cw = tileWidth(below, ctx), ch = tileHeight(below, cty);
+                for (int cy = 0; cy < ch; cy += 2) {
+                    int row0 = cy * cw, row1 = Math.min(cy + 1, ch - 1) * cw;
+                    int outRow = (j * TILE / 2 + cy / 2) * w + i * TILE / 2;
+                    for (int cx = 0; cx < cw; cx += 2) {
+                        int cx1 = Math.min(cx + 1, cw - 1);
+                        out[outRow + cx / 2] = average(child[row0 + cx], child[row0 + cx1],
+                                child[row1 + cx], child[row1 + cx1]);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    //Per-channel mean of four ARGB pixels, rounded
+    private static int average(int a, int b, int c, int d) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+            result |= ((sum + 2) >> 2) << shift;
+        }
+        return result;
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) level << 56) | ((long) ty << 28) | tx;
+    }
+}
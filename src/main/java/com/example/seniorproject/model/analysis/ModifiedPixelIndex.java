@@ -0,0 +1,372 @@
+package com.example.seniorproject.model.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+/*
+ Compressed bitmap of modified pixel positions (position = y * width + x), after Roaring bitmaps
+ Positions are split by their high 16 bits into chunks of 65536. A chunk with few modified pixels keeps them as a sorted
+ char[] of low bits; once it holds more than 4096 it switches to a 1024-word bitset, which is then the smaller form.
+ Sequential LSB leaves a few dense bitmap chunks at the top and nothing else; random-order algorithms spread sparse
+ arrays over the whole image. Either way the index is a small fraction of a heatmap, so thousands can be kept.
+ Cardinality, range counts and tile counts work on whole chunks and words; indexes of the same image size can be
+ intersected, merged and subtracted chunk by chunk.
+*/
+public final class ModifiedPixelIndex {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int WORDS = CHUNK / 64;
+    //Above this many values a bitset (8 KB) is smaller than a char[]
+    private static final int ARRAY_MAX = 4096;
+
+    private final int width;
+    private final int height;
+    //Sorted high bits of the non-empty chunks, and each chunk's contents
+    private final int[] keys;
+    private final Container[] containers;
+    //before[i] = modified pixels in the chunks ahead of chunk i
+    private final long[] before;
+
+    private ModifiedPixelIndex(int width, int height, int[] keys, Container[] containers) {
+        this.width = width;
+        this.height = height;
+        this.keys = keys;
+        this.containers = containers;
+        this.before = new long[containers.length + 1];
+        for (int i = 0; i < containers.length; i++) before[i + 1] = before[i] + containers[i].cardinality();
+    }
+
+    //Pixels whose R, G or B differ, built chunk by chunk in parallel from the differing row spans only
+    public static ModifiedPixelIndex of(DirtyRegions regions) {
+        int w = regions.width(), h = regions.height();
+        long pixels = (long) w * h;
+        int chunks = (int) ((pixels + CHUNK - 1) >>> CHUNK_BITS);
+        Container[] built = IntStream.range(0, chunks).parallel().mapToObj(key -> {
+            long start = (long) key << CHUNK_BITS, end = Math.min(pixels, start + CHUNK);
+            long[] words = new long[WORDS];
+            regions.sumRows((int) (start / w), (int) ((end - 1) / w), (y, x0, x1, o, s, offset) -> {
+                long rowStart = (long) y * w;
+                int from = (int) Math.max(x0, start - rowStart), to = (int) Math.min(x1, end - 1 - rowStart);
+                for (int x = from; x <= to; x++) {
+                    if (((o[offset + x] ^ s[offset + x]) & 0xFFFFFF) != 0) {
+                        int low = (int) (rowStart + x - start);
+                        words[low >>> 6] |= 1L << low;
+                    }
+                }
+                return 0;
+            });
+            return Container.fromWords(words);
+        }).toArray(Container[]::new);
+        return compact(w, h, built);
+    }
+
+    //Drops empty chunks; slot i of the array holds chunk i
+    private static ModifiedPixelIndex compact(int width, int height, Container[] byKey) {
+        List<Integer> keys = new ArrayList<>();
+        List<Container> kept = new ArrayList<>();
+        for (int key = 0; key < byKey.length; key++) {
+            if (byKey[key] != null && byKey[key].cardinality() > 0) {
+                keys.add(key);
+                kept.add(byKey[key]);
+            }
+        }
+        return new ModifiedPixelIndex(width, height, keys.stream().mapToInt(Integer::intValue).toArray(),
+                kept.toArray(Container[]::new));
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+
+    public long cardinality() {
+        return before[containers.length];
+    }
+
+    public boolean contains(int x, int y) {
+        long position = (long) y * width + x;
+        int i = Arrays.binarySearch(keys, (int) (position >>> CHUNK_BITS));
+        return i >= 0 && containers[i].contains((int) (position & (CHUNK - 1)));
+    }
+
+    //Modified pixels among positions from (inclusive) to to (exclusive), in row-major order
+    public long countInRange(long from, long to) {
+        return from >= to ? 0 : rank(to) - rank(from);
+    }
+
+    //Modified pixels inside a rectangle, one range count per row
+    public long countInRect(int x, int y, int w, int h) {
+        long count = 0;
+        for (int row = y; row < y + h; row++) {
+            long start = (long) row * width + x;
+            count += countInRange(start, start + w);
+        }
+        return count;
+    }
+
+    //Modified pixels per tile of tileSize x tileSize, row-major over the tile grid; whole words at a time where possible
+    public long[] tileCounts(int tileSize) {
+        int tilesX = (width + tileSize - 1) / tileSize, tilesY = (height + tileSize - 1) / tileSize;
+        long[] counts = new long[tilesX * tilesY];
+        for (int i = 0; i < keys.length; i++) {
+            long base = (long) keys[i] << CHUNK_BITS;
+            containers[i].forEachWord((wordIndex, word) -> {
+                long p = base + ((long) wordIndex << 6);
+                int y = (int) (p / width), x = (int) (p % width);
+                //The word's 64 positions lie in one tile unless they cross a row or tile edge
+                if (x + 63 < width && x / tileSize == (x + 63) / tileSize) {
+                    counts[(y / tileSize) * tilesX + x / tileSize] += Long.bitCount(word);
+                    return;
+                }
+                for (long bits = word; bits != 0; bits &= bits - 1) {
+                    long q = p + Long.numberOfTrailingZeros(bits);
+                    counts[(int) (q / width / tileSize) * tilesX + (int) (q % width) / tileSize]++;
+                }
+            });
+        }
+        return counts;
+    }
+
+    //Share of modified pixels in each tile, 0..1, in the same order as tileCounts
+    public double[] tileDensities(int tileSize) {
+        long[] counts = tileCounts(tileSize);
+        int tilesX = (width + tileSize - 1) / tileSize;
+        double[] densities = new double[counts.length];
+        for (int t = 0; t < counts.length; t++) {
+            int tx = t % tilesX, ty = t / tilesX;
+            long area = (long) Math.min(tileSize, width - tx * tileSize) * Math.min(tileSize, height - ty * tileSize);
+            densities[t] = counts[t] / (double) area;
+        }
+        return densities;
+    }
+
+    //Every modified position in increasing order
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            long base = (long) keys[i] << CHUNK_BITS;
+            containers[i].forEachWord((wordIndex, word) -> {
+                for (long bits = word; bits != 0; bits &= bits - 1) {
+                    action.accept(base + ((long) wordIndex << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            });
+        }
+    }
+
+    //Pixels modified in both analyses
+    public ModifiedPixelIndex and(ModifiedPixelIndex other) {
+        return combine(other, Op.AND);
+    }
+
+    //Pixels modified in either
+    public ModifiedPixelIndex or(ModifiedPixelIndex other) {
+        return combine(other, Op.OR);
+    }
+
+    //Pixels modified here but not in other
+    public ModifiedPixelIndex andNot(ModifiedPixelIndex other) {
+        return combine(other, Op.AND_NOT);
+    }
+
+    //Pixels modified in exactly one
+    public ModifiedPixelIndex xor(ModifiedPixelIndex other) {
+        return combine(other, Op.XOR);
+    }
+
+    //Memory held by the chunks
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * Integer.BYTES + (long) before.length * Long.BYTES;
+        for (Container c : containers) bytes += c.sizeInBytes();
+        return bytes;
+    }
+
+    //Modified pixels at positions below position
+    private long rank(long position) {
+        int key = (int) (position >>> CHUNK_BITS);
+        int i = Arrays.binarySearch(keys, key);
+        if (i < 0) return before[-i - 1];
+        return before[i] + containers[i].rank((int) (position & (CHUNK - 1)));
+    }
+
+    private enum Op { AND, OR, AND_NOT, XOR }
+
+    private ModifiedPixelIndex combine(ModifiedPixelIndex other, Op op) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Indexes must come from images of the same size");
+        }
+        int chunks = (int) (((long) width * height + CHUNK - 1) >>> CHUNK_BITS);
+        Container[] byKey = new Container[chunks];
+        for (int i = 0; i < keys.length; i++) byKey[keys[i]] = containers[i];
+        for (int j = 0; j < other.keys.length; j++) {
+            int key = other.keys[j];
+            byKey[key] = Container.combine(byKey[key], other.containers[j], op);
+        }
+        if (op == Op.AND) {
+            //Chunks only on this side have nothing to intersect with
+            for (int key : keys) {
+                if (Arrays.binarySearch(other.keys, key) < 0) byKey[key] = null;
+            }
+        }
+        return compact(width, height, byKey);
+    }
+
+    @FunctionalInterface
+    private interface WordAction {
+        void accept(int wordIndex, long word);
+    }
+
+    //One chunk: sorted low bits, or a bitset once that is smaller
+    private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        //Values below low
+        abstract int rank(int low);
+
+        abstract long[] words();
+
+        abstract void forEachWord(WordAction action);
+
+        abstract long sizeInBytes();
+
+        static Container fromWords(long[] words) {
+            int cardinality = 0;
+            for (long word : words) cardinality += Long.bitCount(word);
+            if (cardinality > ARRAY_MAX) return new BitmapContainer(words, cardinality);
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < words.length; i++) {
+                for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                    values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+            return new ArrayContainer(values);
+        }
+
+        //a is null when the chunk is missing on the left side
+        static Container combine(Container a, Container b, Op op) {
+            if (a == null) return op == Op.OR || op == Op.XOR ? b : null;
+            if (op == Op.AND && a instanceof ArrayContainer x && b instanceof ArrayContainer y) {
+                return x.intersect(y);
+            }
+            long[] left = a.words(), right = b.words();
+            long[] out = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                out[i] = switch (op) {
+                    case AND -> left[i] & right[i];
+                    case OR -> left[i] | right[i];
+                    case AND_NOT -> left[i] & ~right[i];
+                    case XOR -> left[i] ^ right[i];
+                };
+            }
+            return fromWords(out);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override int cardinality() { return values.length; }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        int rank(int low) {
+            int i = Arrays.binarySearch(values, (char) low);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        @Override
+        long[] words() {
+            long[] words = new long[WORDS];
+            for (char v : values) words[v >>> 6] |= 1L << v;
+            return words;
+        }
+
+        @Override
+        void forEachWord(WordAction action) {
+            //Values sharing a word are gathered so callers see each word once
+            int i = 0;
+            while (i < values.length) {
+                int wordIndex = values[i] >>> 6;
+                long word = 0;
+                while (i < values.length && values[i] >>> 6 == wordIndex) word |= 1L << values[i++];
+                action.accept(wordIndex, word);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+
+        //Sorted merge, no bitset needed
+        Container intersect(ArrayContainer other) {
+            char[] out = new char[Math.min(values.length, other.values.length)];
+            int i = 0, j = 0, n = 0;
+            while (i < values.length && j < other.values.length) {
+                if (values[i] < other.values[j]) i++;
+                else if (values[i] > other.values[j]) j++;
+                else {
+                    out[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(Arrays.copyOf(out, n));
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override int cardinality() { return cardinality; }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] >>> low & 1) != 0;
+        }
+
+        @Override
+        int rank(int low) {
+            int count = 0;
+            int word = low >>> 6;
+            for (int i = 0; i < word; i++) count += Long.bitCount(words[i]);
+            if ((low & 63) != 0) count += Long.bitCount(words[word] & (-1L >>> (64 - (low & 63))));
+            return count;
+        }
+
+        @Override
+        long[] words() {
+            return words;
+        }
+
+        @Override
+        void forEachWord(WordAction action) {
+            for (int i = 0; i < WORDS; i++) {
+                if (words[i] != 0) action.accept(i, words[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) WORDS * Long.BYTES;
+        }
+    }
+}
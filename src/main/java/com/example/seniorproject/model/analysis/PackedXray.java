@@ -0,0 +1,71 @@
+package com.example.seniorproject.model.analysis;
+
+//One bit plane of R, G and B, 1 bit per channel per pixel - what the X-ray column shows
+public final class PackedXray implements CompactRaster {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] red;
+    private final long[] green;
+    private final long[] blue;
+
+    //The bitsets are shared with the BitPlanes they came from
+    PackedXray(int width, int height, int wordsPerRow, long[] red, long[] green, long[] blue) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    @Override public int width() { return width; }
+    @Override public int height() { return height; }
+
+    //Each channel at full brightness where its bit is set
+    @Override
+    public int argb(int x, int y) {
+        int i = y * wordsPerRow + (x >>> 6), bit = x & 63;
+        int r = (int) (red[i] >>> bit) & 1;
+        int g = (int) (green[i] >>> bit) & 1;
+        int b = (int) (blue[i] >>> bit) & 1;
+        return 0xFF000000 | ((r << 16) | (g << 8) | b) * 0xFF;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 3L * red.length * Long.BYTES;
+    }
+
+    //Colour of each combination of red, green and blue bit, indexed r << 2 | g << 1 | b
+    private static final int[] COLORS = new int[8];
+    static {
+        for (int i = 0; i < 8; i++) {
+            COLORS[i] = 0xFF000000 | (((i >> 2) << 16) | (((i >> 1) & 1) << 8) | (i & 1)) * 0xFF;
+        }
+    }
+
+    //Loads each channel's word once per 64 pixels and shifts through it, instead of one lookup per pixel and channel
+    @Override
+    public int[] expand(int x0, int y0, int w, int h) {
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * wordsPerRow, o = y * w;
+            int x = x0, end = x0 + w;
+            while (x < end) {
+                int i = row + (x >>> 6), bit = x & 63;
+                int n = Math.min(64 - bit, end - x);
+                long r = red[i] >>> bit, g = green[i] >>> bit, b = blue[i] >>> bit;
+                for (int k = 0; k < n; k++) {
+                    out[o++] = COLORS[(int) (((r & 1) << 2) | ((g & 1) << 1) | (b & 1))];
+                    r >>>= 1;
+                    g >>>= 1;
+                    b >>>= 1;
+                }
+                x += n;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+//Reads an image in bands of whole rows and hands each band to a worker of the common ForkJoinPool
+final class PixelRows {
+
+    //Pixels per chunk - large enough to amortise the read, small enough to spread over all cores
+    static final int CHUNK_PIXELS = 1 << 18;
+
+    private PixelRows() {}
+
+    @FunctionalInterface
+    interface ChunkAction {
+        //argb holds rows * width packed pixels, row-major; band is the window the rows belong to
+        void accept(int band, int firstRow, int rows, int width, int[] argb);
+    }
+
+    //First row of each of bandCount bands; bands differ in height by at most one row
+    static int[] bandStarts(int height, int bandCount) {
+        int[] starts = new int[bandCount + 1];
+        for (int b = 0; b <= bandCount; b++) {
+            starts[b] = (int) ((long) height * b / bandCount);
+        }
+        return starts;
+    }
+
+    //Calls action once per chunk, in parallel; chunks never cross a band edge
+    static void forEachChunk(BufferedImage image, int[] bandStarts, ChunkAction action) {
+        int w = image.getWidth();
+        int chunkRows = Math.max(1, CHUNK_PIXELS / Math.max(1, w));
+
+        List<int[]> chunks = new ArrayList<>();
+        for (int b = 0; b + 1 < bandStarts.length; b++) {
+            for (int y = bandStarts[b]; y < bandStarts[b + 1]; y += chunkRows) {
+                chunks.add(new int[]{b, y, Math.min(chunkRows, bandStarts[b + 1] - y)});
+            }
+        }
+
+        IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+            int[] chunk = chunks.get(i);
+            action.accept(chunk[0], chunk[1], chunk[2], w, read(image, chunk[1], chunk[2]));
+        });
+    }
+
+    //Packed ARGB for the given rows; int-packed rasters are copied directly, everything else goes through getRGB
+    static int[] read(BufferedImage image, int y, int rows) {
+        int w = image.getWidth();
+        int[] argb = new int[w * rows];
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().getDataElements(0, y, w, rows, argb);
+        } else {
+            image.getRGB(0, y, w, rows, argb, 0, w);
+        }
+        return argb;
+    }
+
+    //Packed ARGB of one rectangle, w pixels per row
+    static int[] readRect(BufferedImage image, int x, int y, int w, int h) {
+        int[] argb = new int[w * h];
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().getDataElements(x, y, w, h, argb);
+        } else {
+            image.getRGB(x, y, w, h, argb, 0, w);
+        }
+        return argb;
+    }
+
+    //The image's own int[] when it is int-packed with rows back to back, so rows can be compared in place; else null
+    static int[] direct(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) return null;
+        Raster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel model)
+                || model.getScanlineStride() != image.getWidth()
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getOffset() != 0) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+}
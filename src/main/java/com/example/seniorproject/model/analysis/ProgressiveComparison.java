@@ -0,0 +1,232 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/*
+ MSE, modified-pixel ratio and difference heatmap of an original / stego pair, estimated from a growing sample
+ The image is cut into STRATUM x STRATUM blocks. Each block column and block row gets a random offset, and pass k
+ visits the pixels whose position inside the block matches that offset modulo 64 >> k: first one pixel per block,
+ then the rest of a 32-pixel grid, and so on until the last pass has visited every pixel exactly once. Every pass is
+ a stratified sample, but partial blocks at the right and bottom edges get as many samples per grid cell as full
+ ones, and so a larger share of their pixels. The running means therefore weight each block's sample mean by its
+ pixel count. The 95% interval of the MSE combines the blocks' variances with a finite population correction each;
+ a block with one sample so far borrows the pooled variance. The modified ratio uses a Wilson interval on the
+ weighted ratio. After the last pass the values are exact and exactHeatmap() equals the ByteHeatmap a full
+ comparison gives.
+*/
+public final class ProgressiveComparison {
+
+    public static final int STRATUM = 64;
+    private static final int STRATUM_SHIFT = 6;
+    private static final double Z95 = 1.959964;
+
+    //Running values with 95% confidence bounds; bounds equal the value once every pixel has been visited
+    public record Estimate(long samples, long pixels, double mse, double mseLow, double mseHigh,
+                           double modifiedRatio, double modifiedLow, double modifiedHigh) {
+        public boolean exact() { return samples == pixels; }
+        public double coverage() { return samples / (double) pixels; }
+    }
+
+    private final BufferedImage original;
+    private final BufferedImage stego;
+    private final int width;
+    private final int height;
+    private final int amplification;
+    private final byte[] levels;
+    private final long[] blueHigh;
+    //Random offset of every block column and block row, inside the block
+    private final int[] offsetX;
+    private final int[] offsetY;
+    //Grid step of the last finished pass; STRATUM * 2 before the first
+    private volatile int stride = STRATUM * 2;
+
+    private long samples;
+    private long modified;
+    //Per pixel error e = dR² + dG² + dB², so MSE = mean(e) / 3
+    private long errorSum;
+    private double errorSquares;
+    //The same per block, row-major; a block row is only written by the worker passing over it
+    private final long[] blockSamples;
+    private final long[] blockModified;
+    private final long[] blockErrorSums;
+    private final double[] blockErrorSquares;
+
+    public ProgressiveComparison(BufferedImage original, BufferedImage stego, int amplification, long seed) {
+        if (original.getWidth() != stego.getWidth() || original.getHeight() != stego.getHeight()) {
+            throw new IllegalArgumentException("Original and stego images must be the same size for comparison.");
+        }
+        this.original = original;
+        this.stego = stego;
+        this.width = stego.getWidth();
+        this.height = stego.getHeight();
+        this.amplification = amplification;
+        this.levels = new byte[width * height];
+        this.blueHigh = ByteHeatmap.bluePlane(width, height);
+        SplittableRandom random = new SplittableRandom(seed);
+        this.offsetX = offsets(width, random);
+        this.offsetY = offsets(height, random);
+        int blocks = offsetX.length * offsetY.length;
+        this.blockSamples = new long[blocks];
+        this.blockModified = new long[blocks];
+        this.blockErrorSums = new long[blocks];
+        this.blockErrorSquares = new double[blocks];
+    }
+
+    //Offsets fall inside partial edge blocks too, so the first pass samples every block
+    private static int[] offsets(int side, SplittableRandom random) {
+        int[] offsets = new int[(side + STRATUM - 1) >> STRATUM_SHIFT];
+        for (int b = 0; b < offsets.length; b++) {
+            offsets[b] = random.nextInt(Math.min(STRATUM, side - b * STRATUM));
+        }
+        return offsets;
+    }
+
+    public boolean hasNext() {
+        return stride > 1;
+    }
+
+    //Number of passes from the first to the exact one
+    public static int passes() {
+        return STRATUM_SHIFT + 1;
+    }
+
+    //Visits the next, twice as fine grid in parallel over block rows and returns the updated estimate
+    public Estimate refine() {
+        if (!hasNext()) return estimate();
+        int step = stride / 2;
+        IntStream.range(0, offsetY.length).parallel().forEach(by -> pass(by, step));
+        stride = step;
+        return estimate();
+    }
+
+    //Refines until exact
+    public Estimate finish() {
+        while (hasNext()) refine();
+        return estimate();
+    }
+
+    private void pass(int by, int step) {
+        int mask = step - 1, coarse = 2 * step - 1;
+        int blockHeight = Math.min(STRATUM, height - by * STRATUM);
+        long[] n = new long[offsetX.length], mod = new long[offsetX.length], sum = new long[offsetX.length];
+        double[] squares = new double[offsetX.length];
+        for (int ly = offsetY[by] & mask; ly < blockHeight; ly += step) {
+            int y = by * STRATUM + ly;
+            //A row already on the previous grid only gets the new columns
+            boolean coarseRow = step < STRATUM && (ly & coarse) == (offsetY[by] & coarse);
+            int[] o = PixelRows.read(original, y, 1);
+            int[] s = PixelRows.read(stego, y, 1);
+            for (int bx = 0; bx < offsetX.length; bx++) {
+                int blockWidth = Math.min(STRATUM, width - bx * STRATUM);
+                for (int lx = offsetX[bx] & mask; lx < blockWidth; lx += step) {
+                    if (coarseRow && (lx & coarse) == (offsetX[bx] & coarse)) continue;
+                    int x = bx * STRATUM + lx;
+                    int level = ByteHeatmap.level(o[x], s[x]);
+                    ByteHeatmap.put(levels, blueHigh, width, x, y, level);
+                    int e = squaredError(o[x], s[x]);
+                    n[bx]++;
+                    if (level != 0) mod[bx]++;
+                    sum[bx] += e;
+                    squares[bx] += (double) e * e;
+                }
+            }
+        }
+        synchronized (this) {
+            for (int bx = 0; bx < offsetX.length; bx++) {
+                int b = by * offsetX.length + bx;
+                blockSamples[b] += n[bx];
+                blockModified[b] += mod[bx];
+                blockErrorSums[b] += sum[bx];
+                blockErrorSquares[b] += squares[bx];
+                samples += n[bx];
+                modified += mod[bx];
+                errorSum += sum[bx];
+                errorSquares += squares[bx];
+            }
+        }
+    }
+
+    private static int squaredError(int o, int s) {
+        int r = ((o >> 16) & 0xFF) - ((s >> 16) & 0xFF);
+        int g = ((o >> 8) & 0xFF) - ((s >> 8) & 0xFF);
+        int b = (o & 0xFF) - (s & 0xFF);
+        return r * r + g * g + b * b;
+    }
+
+    public synchronized Estimate estimate() {
+        long pixels = (long) width * height;
+        if (samples == 0) return new Estimate(0, pixels, Double.NaN, 0, Double.POSITIVE_INFINITY, Double.NaN, 0, 1);
+        if (samples == pixels) {
+            double mse = errorSum / (3.0 * pixels), p = modified / (double) pixels;
+            return new Estimate(samples, pixels, mse, mse, mse, p, p, p);
+        }
+        double n = samples;
+        double pooledMean = errorSum / n;
+        double pooledVariance = samples > 1 ? Math.max(0, (errorSquares - n * pooledMean * pooledMean) / (n - 1)) : 0;
+
+        //Each block's sample mean, weighted by the block's share of the image
+        double mean = 0, p = 0, variance = 0;
+        for (int by = 0; by < offsetY.length; by++) {
+            for (int bx = 0; bx < offsetX.length; bx++) {
+                int b = by * offsetX.length + bx;
+                double nb = blockSamples[b];
+                if (nb == 0) continue;
+                double size = (double) Math.min(STRATUM, width - bx * STRATUM) * Math.min(STRATUM, height - by * STRATUM);
+                double weight = size / pixels;
+                double blockMean = blockErrorSums[b] / nb;
+                mean += weight * blockMean;
+                p += weight * blockModified[b] / nb;
+                double blockVariance = nb > 1
+                        ? Math.max(0, (blockErrorSquares[b] - nb * blockMean * blockMean) / (nb - 1)) : pooledVariance;
+                variance += weight * weight * (1 - nb / size) * blockVariance / nb;
+            }
+        }
+        double half = Z95 * Math.sqrt(variance);
+
+        //Wilson score interval, which stays sensible when few or no modified pixels were sampled
+        double fpc = 1 - n / pixels;
+        double effective = n / fpc;
+        double z2 = Z95 * Z95 / effective;
+        double centre = (p + z2 / 2) / (1 + z2);
+        double spread = Z95 / (1 + z2) * Math.sqrt(p * (1 - p) / effective + z2 / (4 * effective));
+        double low = Math.max(0, centre - spread);
+        double high = Math.min(1, centre + spread);
+        return new Estimate(samples, pixels, mean / 3, Math.max(0, (mean - half) / 3), (mean + half) / 3, p, low, high);
+    }
+
+    //The complete heatmap, available once every pixel has been visited
+    public synchronized ByteHeatmap exactHeatmap() {
+        if (hasNext()) throw new IllegalStateException("The comparison has not visited every pixel yet");
+        return new ByteHeatmap(width, height, levels, blueHigh, amplification, (int) modified);
+    }
+
+    //Heatmap of what has been visited so far: each pixel shows the sampled pixel of its cell in the current grid
+    public CompactRaster heatmap() {
+        if (!hasNext()) return exactHeatmap();
+        return new CompactRaster() {
+            @Override public int width() { return width; }
+            @Override public int height() { return height; }
+            @Override public long sizeInBytes() { return levels.length + (long) blueHigh.length * Long.BYTES; }
+
+            @Override
+            public int argb(int x, int y) {
+                int bx = x >> STRATUM_SHIFT, by = y >> STRATUM_SHIFT;
+                int lx = x & (STRATUM - 1), ly = y & (STRATUM - 1);
+                int blockWidth = Math.min(STRATUM, width - bx * STRATUM);
+                int blockHeight = Math.min(STRATUM, height - by * STRATUM);
+                //Cells cut off by the image edge may have no sample yet; a coarser cell always has one
+                for (int step = stride; step <= STRATUM; step *= 2) {
+                    int rx = (lx & -step) | (offsetX[bx] & (step - 1));
+                    int ry = (ly & -step) | (offsetY[by] & (step - 1));
+                    if (rx < blockWidth && ry < blockHeight) {
+                        int level = ByteHeatmap.get(levels, blueHigh, width, bx * STRATUM + rx, by * STRATUM + ry);
+                        return ByteHeatmap.color(level, amplification);
+                    }
+                }
+                return 0xFF000000;
+            }
+        };
+    }
+}
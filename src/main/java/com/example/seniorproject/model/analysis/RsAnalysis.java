@@ -0,0 +1,149 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+
+/*
+ RS (regular / singular groups) steganalysis, after Fridrich, Goljan and Du
+ Each channel is cut into groups of four horizontal neighbours. A group is regular when flipping it with the mask
+ 0-1-1-0 makes it noisier, singular when it makes it smoother. Natural images have about as many regular groups under
+ the positive flip (2k <-> 2k+1) as under the negative one (2k-1 <-> 2k); LSB replacement pulls the two apart.
+ Counting the same groups again with every LSB inverted gives the second point needed to solve for the embedding rate.
+ All eight counts per channel come out of one parallel pass.
+*/
+public final class RsAnalysis {
+
+    private static final int GROUP = 4;
+    //Counter slots per channel: regular / singular for +mask and -mask, on the image and on its LSB-inverted copy
+    private static final int R_POS = 0, S_POS = 1, R_NEG = 2, S_NEG = 3, FLIPPED = 4, SLOTS = 8;
+    private static final int VALUES = ChannelHistograms.VALUES;
+    //Table entries are biased so both packed fields stay in 0..8: edge terms lie in -1..1, middle terms in -2..2
+    private static final int EDGE_BIAS = 1, MIDDLE_BIAS = 2, BIAS = 2 * EDGE_BIAS + MIDDLE_BIAS;
+    private static final int DELTA_CODES = 256;
+    //Smoothness deltas looked up per neighbour pair instead of recomputed per group
+    private static final char[] EDGE = edgeTable();
+    private static final char[] MIDDLE = middleTable();
+
+    public record Result(double rate, double[] channelRates, long groups) {}
+
+    private RsAnalysis() {}
+
+    public static Result analyze(BufferedImage image) {
+        long[][] counts = new long[ChannelHistograms.CHANNELS][SLOTS];
+        int[] whole = PixelRows.bandStarts(image.getHeight(), 1);
+
+        PixelRows.forEachChunk(image, whole, (band, firstRow, rows, w, argb) -> {
+            //Tally of packed deltas per channel and image (plain / LSB-inverted); turned into R and S counts below
+            int[][] deltas = new int[2 * ChannelHistograms.CHANNELS][DELTA_CODES];
+            for (int row = 0; row < rows; row++) {
+                int base = row * w;
+                for (int x = 0; x + GROUP <= w; x += GROUP) {
+                    int p0 = argb[base + x], p1 = argb[base + x + 1], p2 = argb[base + x + 2], p3 = argb[base + x + 3];
+                    for (int c = 0; c < ChannelHistograms.CHANNELS; c++) {
+                        int shift = 16 - 8 * c;
+                        int a = (p0 >> shift) & 0xFF, b = (p1 >> shift) & 0xFF;
+                        int cc = (p2 >> shift) & 0xFF, d = (p3 >> shift) & 0xFF;
+                        deltas[2 * c][delta(a, b, cc, d)]++;
+                        deltas[2 * c + 1][delta(a ^ 1, b ^ 1, cc ^ 1, d ^ 1)]++;
+                    }
+                }
+            }
+            long[][] local = new long[ChannelHistograms.CHANNELS][SLOTS];
+            for (int c = 0; c < local.length; c++) {
+                classify(deltas[2 * c], local[c], 0);
+                classify(deltas[2 * c + 1], local[c], FLIPPED);
+            }
+            synchronized (counts) {
+                for (int c = 0; c < counts.length; c++) {
+                    for (int s = 0; s < SLOTS; s++) counts[c][s] += local[c][s];
+                }
+            }
+        });
+
+        double[] rates = new double[ChannelHistograms.CHANNELS];
+        double sum = 0;
+        for (int c = 0; c < rates.length; c++) {
+            rates[c] = estimate(counts[c]);
+            sum += rates[c];
+        }
+        long groups = (long) (image.getWidth() / GROUP) * image.getHeight();
+        return new Result(sum / rates.length, rates, groups);
+    }
+
+    //Packed smoothness change of one group under the mask 0-1-1-0, which flips the two middle pixels:
+    //the sum of three neighbour-pair terms, positive flip in the low nibble and negative flip in the high nibble
+    private static int delta(int a, int b, int c, int d) {
+        return EDGE[(a << 8) | b] + MIDDLE[(b << 8) | c] + EDGE[(d << 8) | c];
+    }
+
+    //Regular groups got noisier under the flip, singular groups smoother
+    private static void classify(int[] deltas, long[] counts, int offset) {
+        for (int code = 0; code < DELTA_CODES; code++) {
+            if (deltas[code] == 0) continue;
+            int pos = (code & 0xF) - BIAS;
+            int neg = (code >> 4) - BIAS;
+            if (pos > 0) counts[offset + R_POS] += deltas[code];
+            else if (pos < 0) counts[offset + S_POS] += deltas[code];
+            if (neg > 0) counts[offset + R_NEG] += deltas[code];
+            else if (neg < 0) counts[offset + S_NEG] += deltas[code];
+        }
+    }
+
+    //Change of |x - y| when x is flipped; positive flip in the low nibble, negative flip in the high nibble
+    private static char[] edgeTable() {
+        char[] table = new char[VALUES * VALUES];
+        for (int y = 0; y < VALUES; y++) {
+            for (int x = 0; x < VALUES; x++) {
+                int base = Math.abs(x - y);
+                int pos = Math.abs((x ^ 1) - y) - base + EDGE_BIAS;
+                int neg = Math.abs(negativeFlip(x) - y) - base + EDGE_BIAS;
+                table[(y << 8) | x] = (char) (pos | (neg << 4));
+            }
+        }
+        return table;
+    }
+
+    //Change of |c - b| when both are flipped, packed the same way
+    private static char[] middleTable() {
+        char[] table = new char[VALUES * VALUES];
+        for (int b = 0; b < VALUES; b++) {
+            for (int c = 0; c < VALUES; c++) {
+                int base = Math.abs(c - b);
+                int pos = Math.abs((c ^ 1) - (b ^ 1)) - base + MIDDLE_BIAS;
+                int neg = Math.abs(negativeFlip(c) - negativeFlip(b)) - base + MIDDLE_BIAS;
+                table[(b << 8) | c] = (char) (pos | (neg << 4));
+            }
+        }
+        return table;
+    }
+
+    //Shifted flip -1 <-> 0, 1 <-> 2, ..., 255 <-> 256
+    private static int negativeFlip(int v) {
+        return ((v + 1) ^ 1) - 1;
+    }
+
+    //Solves the RS quadratic for the flipped fraction z and turns it into an embedding rate
+    private static double estimate(long[] n) {
+        double d0 = n[R_POS] - n[S_POS];
+        double d1 = n[FLIPPED + R_POS] - n[FLIPPED + S_POS];
+        double n0 = n[R_NEG] - n[S_NEG];
+        double n1 = n[FLIPPED + R_NEG] - n[FLIPPED + S_NEG];
+
+        double a = 2 * (d1 + d0);
+        double b = n0 - n1 - d1 - 3 * d0;
+        double c = d0 - n0;
+        double z;
+        if (Math.abs(a) < 1e-9) {
+            if (Math.abs(b) < 1e-9) return 0;
+            z = -c / b;
+        } else {
+            double disc = b * b - 4 * a * c;
+            if (disc < 0) return 0;
+            double root = Math.sqrt(disc);
+            double z1 = (-b + root) / (2 * a);
+            double z2 = (-b - root) / (2 * a);
+            z = Math.abs(z1) < Math.abs(z2) ? z1 : z2;
+        }
+        double rate = z / (z - 0.5);
+        return Double.isFinite(rate) ? Math.max(0, Math.min(1, rate)) : 0;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/*
+ SSIM and multi-scale SSIM of the stego image against the original, after Wang, Simoncelli and Bovik
+ Both images are turned into 8-bit luma from the rows of the comparison's DirtyRegions scan, the same pass that feeds
+ the heatmap, MSE and modified-pixel index: the stego image's luma is computed only inside the differing spans and
+ copied from the original's everywhere else. SSIM is averaged over every 8x8 window
+ (uniform weights, stride 1). The window positions are split into tiles that run in parallel on the common
+ ForkJoinPool. Each tile builds summed-area tables of x, y, x², y² and xy over its pixels, so every window's means,
+ variances and covariance cost four lookups per table, whatever the window size.
+ MS-SSIM repeats the contrast-structure term on up to five 2x2-averaged scales with the standard weights. Scales
+ smaller than a window are left out and the remaining weights renormalised, so small images still get a value.
+*/
+public final class Ssim {
+
+    public static final int WINDOW = 8;
+    private static final int TILE = 256;
+    private static final double C1 = (0.01 * 255) * (0.01 * 255);
+    private static final double C2 = (0.03 * 255) * (0.03 * 255);
+    private static final double[] MS_WEIGHTS = {0.0448, 0.2856, 0.3001, 0.2363, 0.1333};
+
+    //scales is how many MS-SSIM scales were large enough to use
+    public record Result(double ssim, double msSsim, int scales) {}
+
+    private Ssim() {}
+
+    public static Result compare(BufferedImage original, BufferedImage stego) {
+        return compare(DirtyRegions.of(original, stego));
+    }
+
+    //Luma comes from the rows of the comparison's own scan: rows and spans it found identical take the original's luma
+    public static Result compare(DirtyRegions regions) {
+        int w = regions.width(), h = regions.height(), width = w;
+        byte[] originalLuma = new byte[w * h], stegoLuma = new byte[w * h];
+        regions.forEachRow((row, x0, x1, o, s, offset) -> {
+            int base = row * width;
+            for (int i = 0; i < width; i++) originalLuma[base + i] = (byte) luma(o[offset + i]);
+            System.arraycopy(originalLuma, base, stegoLuma, base, width);
+            for (int i = x0; i <= x1; i++) stegoLuma[base + i] = (byte) luma(s[offset + i]);
+            return 0;
+        });
+
+        byte[] x = originalLuma, y = stegoLuma;
+        //Images smaller than one window have no value
+        double ssim = Double.NaN;
+        double logMs = 0, weights = 0;
+        int scales = 0;
+        for (int scale = 0; scale < MS_WEIGHTS.length && w >= WINDOW && h >= WINDOW; scale++) {
+            double[] means = scale(x, y, w, h);
+            if (scale == 0) ssim = means[0];
+            //Contrast-structure on every scale but the last, full SSIM on the last
+            boolean last = scale == MS_WEIGHTS.length - 1 || w / 2 < WINDOW || h / 2 < WINDOW;
+            double term = Math.max(last ? means[0] : means[1], 0);
+            logMs += MS_WEIGHTS[scale] * Math.log(term);
+            weights += MS_WEIGHTS[scale];
+            scales++;
+            if (last) break;
+            x = halve(x, w, h);
+            y = halve(y, w, h);
+            w /= 2;
+            h /= 2;
+        }
+        double msSsim = scales == 0 ? Double.NaN : Math.exp(logMs / weights);
+        return new Result(ssim, msSsim, scales);
+    }
+
+    //ITU-R BT.601 luma, rounded
+    private static int luma(int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF) + 128) >> 8;
+    }
+
+    //Mean SSIM and mean contrast-structure term over all windows of one scale
+    private static double[] scale(byte[] x, byte[] y, int w, int h) {
+        int positionsX = w - WINDOW + 1, positionsY = h - WINDOW + 1;
+        int tilesX = (positionsX + TILE - 1) / TILE, tilesY = (positionsY + TILE - 1) / TILE;
+        double[][] sums = IntStream.range(0, tilesX * tilesY).parallel()
+                .mapToObj(t -> tile(x, y, w, (t % tilesX) * TILE, (t / tilesX) * TILE,
+                        Math.min(TILE, positionsX - (t % tilesX) * TILE), Math.min(TILE, positionsY - (t / tilesX) * TILE)))
+                .toArray(double[][]::new);
+        double ssim = 0, cs = 0;
+        for (double[] s : sums) {
+            ssim += s[0];
+            cs += s[1];
+        }
+        double windows = (double) positionsX * positionsY;
+        return new double[]{ssim / windows, cs / windows};
+    }
+
+    //Sums of SSIM and cs over the tw x th windows whose top-left corners start at (x0, y0)
+    private static double[] tile(byte[] x, byte[] y, int w, int x0, int y0, int tw, int th) {
+        int pw = tw + WINDOW - 1, ph = th + WINDOW - 1;
+        //Summed-area tables with a zero first row and column: t[(r + 1) * stride + c + 1] = sum over rows <= r, cols <= c
+        int stride = pw + 1;
+        long[] sx = new long[stride * (ph + 1)], sy = new long[sx.length];
+        long[] sxx = new long[sx.length], syy = new long[sx.length], sxy = new long[sx.length];
+        for (int r = 0; r < ph; r++) {
+            long rx = 0, ry = 0, rxx = 0, ryy = 0, rxy = 0;
+            int src = (y0 + r) * w + x0;
+            int row = (r + 1) * stride, above = r * stride;
+            for (int c = 0; c < pw; c++) {
+                int a = x[src + c] & 0xFF, b = y[src + c] & 0xFF;
+                rx += a;
+                ry += b;
+                rxx += a * a;
+                ryy += b * b;
+                rxy += a * b;
+                int i = row + c + 1;
+                sx[i] = sx[above + c + 1] + rx;
+                sy[i] = sy[above + c + 1] + ry;
+                sxx[i] = sxx[above + c + 1] + rxx;
+                syy[i] = syy[above + c + 1] + ryy;
+                sxy[i] = sxy[above + c + 1] + rxy;
+            }
+        }
+
+        double n = WINDOW * WINDOW;
+        double ssim = 0, cs = 0;
+        for (int r = 0; r < th; r++) {
+            int top = r * stride, bottom = (r + WINDOW) * stride;
+            for (int c = 0; c < tw; c++) {
+                int a = top + c, b = top + c + WINDOW, d = bottom + c, e = bottom + c + WINDOW;
+                double mx = (sx[e] - sx[b] - sx[d] + sx[a]) / n;
+                double my = (sy[e] - sy[b] - sy[d] + sy[a]) / n;
+                double vx = (sxx[e] - sxx[b] - sxx[d] + sxx[a]) / n - mx * mx;
+                double vy = (syy[e] - syy[b] - syy[d] + syy[a]) / n - my * my;
+                double cov = (sxy[e] - sxy[b] - sxy[d] + sxy[a]) / n - mx * my;
+                double contrast = (2 * cov + C2) / (vx + vy + C2);
+                cs += contrast;
+                ssim += (2 * mx * my + C1) / (mx * mx + my * my + C1) * contrast;
+            }
+        }
+        return new double[]{ssim, cs};
+    }
+
+    //2x2 average, rounded; an odd last row or column is dropped
+    private static byte[] halve(byte[] src, int w, int h) {
+        int hw = w / 2, hh = h / 2;
+        byte[] out = new byte[hw * hh];
+        IntStream.range(0, hh).parallel().forEach(r -> {
+            int top = 2 * r * w, bottom = top + w;
+            for (int c = 0; c < hw; c++) {
+                int sum = (src[top + 2 * c] & 0xFF) + (src[top + 2 * c + 1] & 0xFF)
+                        + (src[bottom + 2 * c] & 0xFF) + (src[bottom + 2 * c + 1] & 0xFF);
+                out[r * hw + c] = (byte) ((sum + 2) >> 2);
+            }
+        });
+        return out;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.seniorproject.model.analysis;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/*
+ Heatmap, MSE partial sums and bit planes of a stego image against an original, kept per 256 x 256 tile
+ Every tile of the stego image gets a 64-bit hash. Given the comparison of an earlier stego image against the same
+ original, e.g. the same cover embedded again with a slightly different message, a tile whose hash has not changed
+ keeps its squared-error sum, modified count, heatmap levels and bit-plane words from that comparison. Only the
+ changed tiles are compared and sliced again, each on a worker of the common ForkJoinPool. Hashing still reads every
+ pixel once, but that is one multiply per pixel instead of the full comparison.
+ Within a changed tile, rows that match exactly are found with Arrays.mismatch and skipped. Tiles are 256 pixels
+ wide, a multiple of 64, so a bit-plane word never straddles two tiles.
+ The hashes, sums and heatmap can be written out and read back for the next session. The bit planes are not
+ written, as they would be bigger than the image; a comparison read back without planes slices them in full.
+*/
+public final class TiledComparison {
+
+    public static final int TILE = 256;
+
+    private final int width;
+    private final int height;
+    private final long[] hashes;
+    private final long[] squaredErrors;
+    private final int[] modified;
+    private final ByteHeatmap heatmap;
+    //Null when read back from storage
+    private final BitPlanes planes;
+    private final int recomputedTiles;
+
+    private TiledComparison(int width, int height, long[] hashes, long[] squaredErrors, int[] modified,
+                            ByteHeatmap heatmap, BitPlanes planes, int recomputedTiles) {
+        this.width = width;
+        this.height = height;
+        this.hashes = hashes;
+        this.squaredErrors = squaredErrors;
+        this.modified = modified;
+        this.heatmap = heatmap;
+        this.planes = planes;
+        this.recomputedTiles = recomputedTiles;
+    }
+
+    //previous may be null, or the comparison of another stego image against the same original
+    public static TiledComparison of(BufferedImage original, BufferedImage stego, int amplification,
+                                     TiledComparison previous) {
+        if (original.getWidth() != stego.getWidth() || original.getHeight() != stego.getHeight()) {
+            throw new IllegalArgumentException("Original and stego images must be the same size for comparison.");
+        }
+        int w = stego.getWidth(), h = stego.getHeight();
+        boolean reuse = previous != null && previous.width == w && previous.height == h
+                && previous.heatmap.amplification() == amplification;
+        int tilesX = (w + TILE - 1) / TILE, tilesY = (h + TILE - 1) / TILE, tiles = tilesX * tilesY;
+
+        long[] hashes = new long[tiles];
+        long[] squaredErrors = reuse ? previous.squaredErrors.clone() : new long[tiles];
+        int[] modified = reuse ? previous.modified.clone() : new int[tiles];
+        byte[] levels = reuse ? previous.heatmap.levels().clone() : new byte[w * h];
+        long[] blueHigh = reuse ? previous.heatmap.blueHigh().clone() : ByteHeatmap.bluePlane(w, h);
+        boolean patchPlanes = reuse && previous.planes != null;
+        BitPlanes planes = patchPlanes ? previous.planes.copy() : BitPlanes.of(stego);
+
+        int recomputed = (int) IntStream.range(0, tiles).parallel().filter(t -> {
+            int x0 = (t % tilesX) * TILE, y0 = (t / tilesX) * TILE;
+            int tw = Math.min(TILE, w - x0), th = Math.min(TILE, h - y0);
+            int[] s = PixelRows.readRect(stego, x0, y0, tw, th);
+            hashes[t] = hash(s);
+            if (reuse && previous.hashes[t] == hashes[t]) return false;
+
+            int[] o = PixelRows.readRect(original, x0, y0, tw, th);
+            long sse = 0;
+            int count = 0;
+            for (int r = 0; r < th; r++) {
+                int from = r * tw, to = from + tw;
+                if (Arrays.mismatch(o, from, to, s, from, to) < 0) {
+                    ByteHeatmap.clear(levels, blueHigh, w, y0 + r, x0, x0 + tw);
+                    continue;
+                }
+                for (int i = from; i < to; i++) {
+                    int level = ByteHeatmap.level(o[i], s[i]);
+                    ByteHeatmap.put(levels, blueHigh, w, x0 + i - from, y0 + r, level);
+                    if (level != 0) count++;
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        int diff = ((o[i] >> shift) & 0xFF) - ((s[i] >> shift) & 0xFF);
+                        sse += diff * diff;
+                    }
+                }
+            }
+            squaredErrors[t] = sse;
+            modified[t] = count;
+            if (patchPlanes) planes.refill(x0, x0 + tw, y0, y0 + th, s, tw);
+            return true;
+        }).count();
+
+        int total = 0;
+        for (int count : modified) total += count;
+        return new TiledComparison(w, h, hashes, squaredErrors, modified,
+                new ByteHeatmap(w, h, levels, blueHigh, amplification, total), planes, recomputed);
+    }
+
+    //64-bit multiply-rotate hash of a tile's pixels, alpha included
+    private static long hash(int[] argb) {
+        long h = 0x243F6A8885A308D3L ^ argb.length;
+        for (int p : argb) {
+            h = Long.rotateLeft((h ^ p) * 0x9E3779B97F4A7C15L, 31);
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+
+    public int tiles() {
+        return hashes.length;
+    }
+
+    //How many tiles were compared in this run; the others were taken from the previous comparison
+    public int recomputedTiles() {
+        return recomputedTiles;
+    }
+
+    public int modifiedTiles() {
+        int touched = 0;
+        for (int count : modified) {
+            if (count > 0) touched++;
+        }
+        return touched;
+    }
+
+    public ByteHeatmap heatmap() {
+        return heatmap;
+    }
+
+    //Bit planes of the stego image, or null for a comparison read back from storage
+    public BitPlanes planes() {
+        return planes;
+    }
+
+    //Same value as AnalyzingModel.calculateMse, from the per-tile sums
+    public double mse() {
+        long sum = 0;
+        for (long sse : squaredErrors) sum += sse;
+        return sum / ((double) width * height * 3);
+    }
+
+    //Hashes, sums and heatmap; not the bit planes
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        for (int t = 0; t < hashes.length; t++) {
+            out.writeLong(hashes[t]);
+            out.writeLong(squaredErrors[t]);
+            out.writeInt(modified[t]);
+        }
+        heatmap.writeTo(out);
+    }
+
+    public static TiledComparison readFrom(DataInput in) throws IOException {
+        int width = in.readInt(), height = in.readInt();
+        if (width <= 0 || height <= 0) throw new IOException("Invalid tile grid " + width + " × " + height + ".");
+        int tiles = ((width + TILE - 1) / TILE) * ((height + TILE - 1) / TILE);
+        long[] hashes = new long[tiles], squaredErrors = new long[tiles];
+        int[] modified = new int[tiles];
+        for (int t = 0; t < tiles; t++) {
+            hashes[t] = in.readLong();
+            squaredErrors[t] = in.readLong();
+            modified[t] = in.readInt();
+        }
+        ByteHeatmap heatmap = ByteHeatmap.readFrom(in);
+        if (heatmap.width() != width || heatmap.height() != height) throw new IOException("Heatmap does not match the tile grid.");
+        return new TiledComparison(width, height, hashes, squaredErrors, modified, heatmap, null, 0);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.seniorproject.model.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//In-process timers, counters and throughput histograms, keyed by name
+//Recording is lock-free so the algorithm workers can report from any thread
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+    private static final String PHASE = "phase.";
+    private static final String THROUGHPUT = ".throughput";
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, RateHistogram> histograms = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public RateHistogram rateHistogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new RateHistogram());
+    }
+
+    //One call per finished phase: its timer, a byte counter and a bytes/s histogram
+    void recordPhase(String phase, long nanos, long bytes) {
+        timer(PHASE + phase).record(nanos);
+        counter(PHASE + phase + ".bytes").add(bytes);
+        rateHistogram(PHASE + phase + THROUGHPUT).record(bytes, nanos);
+    }
+
+    //Sorted copies of the timers, for reports
+    public Map<String, Timer> timers() {
+        return new TreeMap<>(timers);
+    }
+
+    public Map<String, Counter> counters() {
+        return new TreeMap<>(counters);
+    }
+
+    public Map<String, RateHistogram> rateHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    //Per-phase breakdown since start or the last reset, then the other counters, for the stats line:
+    //"copy 4× 2.1 ms, median ≥ 512 MB/s; embed loop 4× ...; pixel cache.hits 3"
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Timer> entry : timers().entrySet()) {
+            if (!entry.getKey().startsWith(PHASE)) continue;
+            String phase = entry.getKey().substring(PHASE.length());
+            Timer timer = entry.getValue();
+            if (!sb.isEmpty()) sb.append("; ");
+            sb.append(String.format("%s %d× %.1f ms", phase, timer.count(), timer.meanMillis()));
+            RateHistogram rates = histograms.get(PHASE + phase + THROUGHPUT);
+            if (rates != null && rates.count() > 0) sb.append(", median ≥ ").append(formatRate(rates.quantile(0.5)));
+        }
+        for (Map.Entry<String, Counter> entry : counters().entrySet()) {
+            if (entry.getKey().startsWith(PHASE)) continue;
+            if (!sb.isEmpty()) sb.append("; ");
+            sb.append(entry.getKey()).append(' ').append(entry.getValue().value());
+        }
+        return sb.toString();
+    }
+
+    //Power-of-two rates as B/s, KB/s, MB/s or GB/s
+    static String formatRate(long bytesPerSecond) {
+        String[] units = {"B/s", "KB/s", "MB/s", "GB/s"};
+        int unit = 0;
+        long value = bytesPerSecond;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return value + " " + units[unit];
+    }
+
+    public void reset() {
+        timers.clear();
+        counters.clear();
+        histograms.clear();
+    }
+
+    //Count, total and maximum duration
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long count() { return count.sum(); }
+        public long totalNanos() { return totalNanos.sum(); }
+        public long maxNanos() { return maxNanos.get(); }
+
+        public double meanMillis() {
+            long n = count();
+            return n == 0 ? 0 : totalNanos() / (n * 1_000_000.0);
+        }
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void add(long delta) { value.add(delta); }
+        public void increment() { value.increment(); }
+        public long value() { return value.sum(); }
+    }
+
+    //Bytes per second in power-of-two buckets: bucket b holds rates in [2^b, 2^(b+1))
+    public static final class RateHistogram {
+        private static final int BUCKETS = 64;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        public void record(long bytes, long nanos) {
+            if (bytes <= 0 || nanos <= 0) return;
+            long rate = (long) Math.min(Long.MAX_VALUE, bytes * 1e9 / nanos);
+            buckets.incrementAndGet(Math.max(0, 63 - Long.numberOfLeadingZeros(rate)));
+        }
+
+        public long count() {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += buckets.get(i);
+            return total;
+        }
+
+        //Lower bound of the bucket holding the given quantile, in bytes/s
+        public long quantile(double q) {
+            long total = count();
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(1, rank)) return 1L << i;
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+}
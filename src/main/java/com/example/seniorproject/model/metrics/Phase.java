@@ -0,0 +1,60 @@
+package com.example.seniorproject.model.metrics;
+
+import java.util.function.Supplier;
+
+//Times one phase: commits a JFR PhaseEvent and records the duration and throughput in the global MetricsRegistry
+public final class Phase {
+
+    private Phase() {}
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    @FunctionalInterface
+    public interface VoidWork<E extends Exception> {
+        void run() throws E;
+    }
+
+    public static <T> T measure(String phase, PhaseTags tags, Supplier<T> work) {
+        return measure(phase, tags, null, (Work<T, RuntimeException>) work::get);
+    }
+
+    //Work that may throw, such as ImageIO; the log, when given, also receives the duration
+    public static <T, E extends Exception> T measure(String phase, PhaseTags tags, PhaseLog log, Work<T, E> work) throws E {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase;
+                event.algorithm = tags.algorithm();
+                event.width = tags.width();
+                event.height = tags.height();
+                event.payloadBytes = tags.payloadBytes();
+                event.commit();
+            }
+            MetricsRegistry.global().recordPhase(phase, nanos, tags.processedBytes());
+            if (log != null) log.add(phase, nanos);
+        }
+    }
+
+    public static void run(String phase, PhaseTags tags, Runnable work) {
+        measure(phase, tags, null, (Work<Void, RuntimeException>) () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <E extends Exception> void run(String phase, PhaseTags tags, PhaseLog log, VoidWork<E> work) throws E {
+        measure(phase, tags, log, (Work<Void, E>) () -> {
+            work.run();
+            return null;
+        });
+    }
+}
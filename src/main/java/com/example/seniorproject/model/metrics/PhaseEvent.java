@@ -0,0 +1,33 @@
+package com.example.seniorproject.model.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//JDK Flight Recorder event for one processing phase (decode, copy, permutation, loop, checksum, encode, FX conversion)
+@Name("com.example.seniorproject.Phase")
+@Label("Steganography Phase")
+@Category("Steganography")
+@Description("Duration of one embed, extract or analysis phase")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Image Width")
+    public int width;
+
+    @Label("Image Height")
+    public int height;
+
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadBytes;
+}
@@ -0,0 +1,30 @@
+package com.example.seniorproject.model.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Per-run list of phase durations, in the order the phases finished
+public final class PhaseLog {
+
+    public record Entry(String phase, long nanos) {}
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    synchronized void add(String phase, long nanos) {
+        entries.add(new Entry(phase, nanos));
+    }
+
+    public synchronized List<Entry> entries() {
+        return List.copyOf(entries);
+    }
+
+    //"decode 12 ms, xray 3 ms, ..." for the stats line
+    public synchronized String format() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : entries) {
+            if (!sb.isEmpty()) sb.append(", ");
+            sb.append(entry.phase()).append(' ').append(entry.nanos() / 1_000_000).append(" ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.seniorproject.model.metrics;
+
+import java.awt.image.BufferedImage;
+
+//Fields attached to every phase of one run; zero or null when not known yet
+public record PhaseTags(String algorithm, int width, int height, long payloadBytes) {
+
+    public static final PhaseTags NONE = new PhaseTags(null, 0, 0, 0);
+
+    public static PhaseTags of(String algorithm, BufferedImage image, long payloadBytes) {
+        return new PhaseTags(algorithm, image.getWidth(), image.getHeight(), payloadBytes);
+    }
+
+    public PhaseTags withImage(BufferedImage image) {
+        return new PhaseTags(algorithm, image.getWidth(), image.getHeight(), payloadBytes);
+    }
+
+    public PhaseTags withPayload(long bytes) {
+        return new PhaseTags(algorithm, width, height, bytes);
+    }
+
+    //Bytes a phase moves through: the payload when there is one, otherwise the ARGB pixels
+    long processedBytes() {
+        return payloadBytes > 0 ? payloadBytes : (long) width * height * 4;
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.seniorproject.view;
 
+import com.example.seniorproject.model.analysis.CompactRaster;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
@@ -16,7 +21,8 @@ import javafx.scene.layout.VBox;
 
 //Builds the UI layout for the Analyze tab
 public class AnalyzingView extends BaseView {
-    private static final int IMAGE_SIZE = 200;
+    public static final int IMAGE_SIZE = 200;
+    private static final int ZOOM_SIZE = 600;
 
     private final VBox root;
     private final VBox imageArea = new VBox(10);
@@ -26,6 +32,8 @@ public class AnalyzingView extends BaseView {
     private final Button chooseStegoButton;
     private final Button analyzeButton;
     private final Button clearButton;
+    private final ChoiceBox<String> planeChoice;
+    private final CheckBox progressiveCheck;
 
     private VBox activeRow;
     private ImageView activeOriginalView;
@@ -36,6 +44,7 @@ public class AnalyzingView extends BaseView {
     private Label activeStegoLabel;
     private Label activeLsbXrayLabel;
     private Label activeHeatmapLabel;
+    private Label activeStatsLabel;
 
     public Node getNode() {
         return root;
@@ -47,9 +56,17 @@ public class AnalyzingView extends BaseView {
         analyzeButton = new Button("Analyze");
         clearButton = new Button("Clear");
 
-        HBox controlsRow = new HBox(10, chooseOriginalButton, chooseStegoButton, analyzeButton, clearButton);
+        //Bit plane shown in the X-ray column; plane 0 is the LSB
+        planeChoice = new ChoiceBox<>(FXCollections.observableArrayList(
+                "Plane 0 (LSB)", "Plane 1", "Plane 2", "Plane 3", "Plane 4", "Plane 5", "Plane 6", "Plane 7 (MSB)"));
+        planeChoice.getSelectionModel().selectFirst();
+        //Sampled estimates first, refined until exact - for triage of very large images
+        progressiveCheck = new CheckBox("Progressive");
+
+        HBox controlsRow = new HBox(10, chooseOriginalButton, chooseStegoButton, analyzeButton, clearButton,
+                new Label("X-ray:"), planeChoice, progressiveCheck);
         controlsRow.setPadding(new Insets(10));
-        VBox column = new VBox(10, controlsRow, imageArea);
+        VBox column = new VBox(10, controlsRow, createProgressRow(), imageArea);
         column.setPadding(new Insets(10));
 
         //ScrollPane lets the user scroll through multiple analysis rows
@@ -82,6 +99,7 @@ public class AnalyzingView extends BaseView {
         makeZoomable(activeHeatmapView, activeHeatmapLabel);
         VBox heatmapCol      = new VBox(5, activeHeatmapLabel,   activeHeatmapView);
 
+        activeStatsLabel = null;
         activeRow = new VBox(5, new HBox(10, originalCol, stegoCol, lsbCol, heatmapCol));
         activeRow.setPadding(new Insets(10));
 
@@ -89,15 +107,31 @@ public class AnalyzingView extends BaseView {
         imageArea.getChildren().add(activeRow);
     }
 
-    //Opens a full-size preview of the image in a dialog
+    //Shows a packed result in a column: a thumbnail now, a larger expansion only if the user zooms in
+    //A thumbnail already shown at the right size is redrawn in place
+    public static void showRaster(ImageView view, CompactRaster raster) {
+        view.setUserData(raster);
+        if (view.getProperties().get(FxRaster.class) instanceof FxRaster shown
+                && RasterPreviews.update(shown, raster, IMAGE_SIZE)) {
+            return;
+        }
+        FxRaster preview = RasterPreviews.preview(raster, IMAGE_SIZE);
+        view.getProperties().put(FxRaster.class, preview);
+        view.setImage(preview.image());
+    }
+
+    //Shows a decoded input image in a column; zooming pans over the full image like the results
+    public static void showImage(ImageView view, BufferedImage image, Image preview) {
+        view.setUserData(CompactRaster.of(image));
+        view.setImage(preview);
+    }
+
+    //Opens a pannable, zoomable view of the image in a dialog, drawn from mipmap tiles as they are needed
     private static void makeZoomable(ImageView view, Label titleLabel) {
         view.setOnMouseClicked(e -> {
-            Image img = view.getImage();
-            if (img == null || img.getWidth() <= 1) return;
-            ImageView zoomed = new ImageView(img);
-            zoomed.setFitWidth(600);
-            zoomed.setFitHeight(600);
-            zoomed.setPreserveRatio(true);
+            if (!(view.getUserData() instanceof CompactRaster raster)) return;
+            Image placeholder = RasterPreviews.preview(raster, ZOOM_SIZE).image();
+            TiledImageViewer zoomed = new TiledImageViewer(raster, placeholder, ZOOM_SIZE, ZOOM_SIZE);
             Alert dialog = new Alert(Alert.AlertType.NONE);
             dialog.setTitle(titleLabel.getText());
             dialog.getDialogPane().setContent(zoomed);
@@ -106,6 +140,15 @@ public class AnalyzingView extends BaseView {
         });
     }
 
+    //Stats line under the active row, created on first use so interim and final stats share it
+    public Label getActiveStatsLabel() {
+        if (activeStatsLabel == null) {
+            activeStatsLabel = new Label();
+            activeRow.getChildren().add(activeStatsLabel);
+        }
+        return activeStatsLabel;
+    }
+
     public VBox getRoot() { return root; }
     public VBox getImageArea() { return imageArea; }
     public List<Node> getImageRows() { return imageRows; }
@@ -113,6 +156,8 @@ public class AnalyzingView extends BaseView {
     public Button getChooseStegoButton() { return chooseStegoButton; }
     public Button getAnalyzeButton() { return analyzeButton; }
     public Button getClearButton() { return clearButton; }
+    public ChoiceBox<String> getPlaneChoice() { return planeChoice; }
+    public CheckBox getProgressiveCheck() { return progressiveCheck; }
     public VBox getActiveRow() { return activeRow; }
     public ImageView getActiveOriginalView() { return activeOriginalView; }
     public ImageView getActiveStegoView() { return activeStegoView; }
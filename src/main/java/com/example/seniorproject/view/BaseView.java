@@ -1,13 +1,21 @@
 package com.example.seniorproject.view;
 
 import java.io.InputStream;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
+import javafx.scene.layout.HBox;
 
 //Shared UI helpers for all view classes
 public abstract class BaseView {
 
+    private final ProgressBar progressBar = new ProgressBar(0);
+    private final Button cancelButton = new Button("Cancel");
+    private final HBox progressRow = new HBox(10, progressBar, cancelButton);
+
     //Loads the placeholder image from resources
     public Image loadDefaultImage() {
         InputStream stream = getClass().getResourceAsStream("/com/example/seniorproject/img.png");
@@ -25,4 +33,20 @@ public abstract class BaseView {
         imageView.setPreserveRatio(true);
         return imageView;
     }
+
+    //Progress bar and cancel button for background work, hidden until a job runs
+    protected HBox createProgressRow() {
+        progressBar.setPrefWidth(250);
+        progressRow.setAlignment(Pos.CENTER_LEFT);
+        setProgressVisible(false);
+        return progressRow;
+    }
+
+    public void setProgressVisible(boolean visible) {
+        progressRow.setVisible(visible);
+        progressRow.setManaged(visible);
+    }
+
+    public ProgressBar getProgressBar() { return progressBar; }
+    public Button getCancelButton() { return cancelButton; }
 }
@@ -1,9 +1,12 @@
 package com.example.seniorproject.view;
 
+import com.example.seniorproject.model.Algorithms;
+
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
@@ -25,11 +28,14 @@ public class EmbeddingView extends BaseView {
     private final Button submitButton;
     private final Button chooseImageButton;
     private final Button chooseSecretImageButton;
+    private final Button chooseSecretFileButton;
     private final Button clearButton;
     private final ChoiceBox<String> algorithmChoice;
     private final ChoiceBox<String> secretTypeChoice;
+    private final CheckBox chunkedCheck;
     private final Label statusLabel;
     private final Label secretTextLabel;
+    private final Label secretFileLabel;
     private final TextField keyField;
     private final VBox keyBox;
 
@@ -50,7 +56,7 @@ public class EmbeddingView extends BaseView {
         coverSection.setPrefWidth(450);
 
         Label secretLabel = new Label("Secret Message:");
-        secretTypeChoice = new ChoiceBox<>(FXCollections.observableArrayList("Text", "Image"));
+        secretTypeChoice = new ChoiceBox<>(FXCollections.observableArrayList("Text", "Image", "File"));
         secretTypeChoice.getSelectionModel().selectFirst();
 
         secretTextLabel = new Label("Message to be embedded:");
@@ -66,19 +72,29 @@ public class EmbeddingView extends BaseView {
         chooseSecretImageButton.setVisible(false);
         chooseSecretImageButton.setManaged(false);
 
-        VBox secretSection = new VBox(10, secretLabel, secretTypeChoice, secretTextLabel, secretTextArea, chooseSecretImageButton, secretImageView);
+        //Any file is hidden byte-for-byte; only its name is shown
+        chooseSecretFileButton = new Button("Choose secret file");
+        chooseSecretFileButton.setVisible(false);
+        chooseSecretFileButton.setManaged(false);
+        secretFileLabel = new Label("");
+        secretFileLabel.setVisible(false);
+        secretFileLabel.setManaged(false);
+
+        VBox secretSection = new VBox(10, secretLabel, secretTypeChoice, secretTextLabel, secretTextArea,
+                chooseSecretImageButton, secretImageView, chooseSecretFileButton, secretFileLabel);
         secretSection.setPadding(new Insets(10));
         secretSection.setPrefWidth(450);
         HBox row1 = new HBox(10, coverSection, secretSection);
 
         // Row 2 - algorithm choice, submit button, and optional key field
         Label algorithmLabel = new Label("Steganography Algorithm:");
-        algorithmChoice = new ChoiceBox<>(FXCollections.observableArrayList("LSB", "Randomized LSB", "Josephus LSB 3-3-2"));
+        algorithmChoice = new ChoiceBox<>(FXCollections.observableArrayList(Algorithms.NAMES));
         algorithmChoice.getSelectionModel().selectFirst();
         submitButton = new Button("Submit");
         clearButton = new Button("Clear");
+        chunkedCheck = new CheckBox("Chunked checksums");
         statusLabel = new Label("");
-        HBox controlsRow = new HBox(10, algorithmLabel, algorithmChoice, submitButton, clearButton, statusLabel);
+        HBox controlsRow = new HBox(10, algorithmLabel, algorithmChoice, chunkedCheck, submitButton, clearButton, statusLabel);
 
         Label keyLabel = new Label("Key (integer):");
         keyField = new TextField();
@@ -87,7 +103,7 @@ public class EmbeddingView extends BaseView {
         keyBox.setVisible(false);
         keyBox.setManaged(false);
 
-        VBox row2 = new VBox(5, controlsRow, keyBox);
+        VBox row2 = new VBox(5, controlsRow, keyBox, createProgressRow());
         row2.setPadding(new Insets(10));
 
         // Row 3 - result image preview
@@ -106,11 +122,14 @@ public class EmbeddingView extends BaseView {
     public Button getSubmitButton() { return submitButton; }
     public Button getChooseImageButton() { return chooseImageButton; }
     public Button getChooseSecretImageButton() { return chooseSecretImageButton; }
+    public Button getChooseSecretFileButton() { return chooseSecretFileButton; }
     public Button getClearButton() { return clearButton; }
     public ChoiceBox<String> getAlgorithmChoice() { return algorithmChoice; }
     public ChoiceBox<String> getSecretTypeChoice() { return secretTypeChoice; }
+    public CheckBox getChunkedCheck() { return chunkedCheck; }
     public Label getStatusLabel() { return statusLabel; }
     public Label getSecretTextLabel() { return secretTextLabel; }
+    public Label getSecretFileLabel() { return secretFileLabel; }
     public TextField getKeyField() { return keyField; }
     public VBox getKeyBox() { return keyBox; }
 }
@@ -1,5 +1,7 @@
 package com.example.seniorproject.view;
 
+import com.example.seniorproject.model.Algorithms;
+
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -26,6 +28,7 @@ public class ExtractingView extends BaseView {
     private final Button submitButton;
     private final Button chooseButton;
     private final Button clearButton;
+    private final Button saveButton;
     private final ChoiceBox<String> algorithmChoice;
     private final TextField keyField;
     private final VBox keyBox;
@@ -45,8 +48,7 @@ public class ExtractingView extends BaseView {
         extractedTextArea.setVisible(false);
         extractedTextArea.setManaged(false);
 
-        algorithmChoice = new ChoiceBox<>(
-                FXCollections.observableArrayList("LSB", "Randomized LSB", "Josephus LSB 3-3-2"));
+        algorithmChoice = new ChoiceBox<>(FXCollections.observableArrayList(Algorithms.NAMES));
         algorithmChoice.getSelectionModel().selectFirst();
 
         submitButton = new Button("Submit");
@@ -71,7 +73,7 @@ public class ExtractingView extends BaseView {
         keyBox.setVisible(false);
         keyBox.setManaged(false);
 
-        VBox topRight = new VBox(10, controlsRow, keyBox);
+        VBox topRight = new VBox(10, controlsRow, keyBox, createProgressRow());
         topRight.setPadding(new Insets(10));
         topRight.setPrefWidth(450);
         topRight.setAlignment(Pos.CENTER);
@@ -91,7 +93,12 @@ public class ExtractingView extends BaseView {
         secretLabel.setVisible(false);
         secretLabel.setManaged(false);
 
-        VBox row2 = new VBox(10, secretLabel, extractedTextArea, extractedImageView);
+        //Writes the raw extracted bytes to disk, for secrets that are neither text nor a viewable image
+        saveButton = new Button("Save extracted data");
+        saveButton.setVisible(false);
+        saveButton.setManaged(false);
+
+        VBox row2 = new VBox(10, secretLabel, extractedTextArea, extractedImageView, saveButton);
         row2.setPadding(new Insets(10));
         row2.setAlignment(Pos.CENTER);
 
@@ -106,6 +113,7 @@ public class ExtractingView extends BaseView {
     public Button getSubmitButton() { return submitButton; }
     public Button getChooseButton() { return chooseButton; }
     public Button getClearButton() { return clearButton; }
+    public Button getSaveButton() { return saveButton; }
     public ChoiceBox<String> getAlgorithmChoice() { return algorithmChoice; }
     public TextField getKeyField() { return keyField; }
     public VBox getKeyBox() { return keyBox; }
@@ -0,0 +1,99 @@
+package com.example.seniorproject.view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.IntBuffer;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/*
+ An int[] raster shown by JavaFX without copying
+ The array is wrapped in a PixelBuffer, so the FX image reads the same memory the model wrote. JavaFX wants premultiplied
+ ARGB; opaque TYPE_INT_ARGB pixels already are, so stego images (always TYPE_INT_ARGB) are shared as they are.
+ Other image types are converted once, which is what SwingFXUtils.toFXImage did on every call.
+ After changing the pixels, call refresh() on the FX thread and the image updates in place.
+*/
+public final class FxRaster {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final PixelBuffer<IntBuffer> buffer;
+    private final WritableImage image;
+
+    private FxRaster(int width, int height, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.buffer = new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance());
+        this.image = new WritableImage(buffer);
+    }
+
+    //Premultiplied ARGB pixels, row-major, width * height long; the array is used as it is
+    public static FxRaster wrap(int[] argbPre, int width, int height) {
+        return new FxRaster(width, height, argbPre);
+    }
+
+    //Straight ARGB pixels, premultiplied in place and then used as they are
+    public static FxRaster wrapStraight(int[] argb, int width, int height) {
+        premultiply(argb);
+        return new FxRaster(width, height, argb);
+    }
+
+    //Shares the image's own pixel array when the layout allows, otherwise converts once
+    public static FxRaster of(BufferedImage image) {
+        int w = image.getWidth(), h = image.getHeight();
+        int[] shared = sharedPixels(image);
+        if (shared != null) return new FxRaster(w, h, shared);
+
+        int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+        premultiply(pixels);
+        return new FxRaster(w, h, pixels);
+    }
+
+    private static int[] sharedPixels(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE) return null;
+        Raster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel model)
+                || model.getScanlineStride() != image.getWidth()
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getOffset() != 0) {
+            return null;
+        }
+        int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+        if (type == BufferedImage.TYPE_INT_ARGB) {
+            //Straight alpha equals premultiplied only where the pixel is opaque
+            for (int p : pixels) {
+                if ((p >>> 24) != 0xFF) return null;
+            }
+        }
+        return pixels;
+    }
+
+    private static void premultiply(int[] pixels) {
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int a = p >>> 24;
+            if (a == 0xFF) continue;
+            int r = ((p >> 16) & 0xFF) * a / 255;
+            int g = ((p >> 8) & 0xFF) * a / 255;
+            int b = (p & 0xFF) * a / 255;
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    public Image image() { return image; }
+    public int[] pixels() { return pixels; }
+    public int width() { return width; }
+    public int height() { return height; }
+
+    //Tells JavaFX the whole array changed; FX thread only
+    public void refresh() {
+        buffer.updateBuffer(b -> null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.seniorproject.view;
+
+import com.example.seniorproject.model.analysis.CompactRaster;
+
+import java.awt.image.BufferedImage;
+
+//Turns packed analysis results into small FX images - only the pixels that fit on screen are expanded
+public final class RasterPreviews {
+
+    private RasterPreviews() {}
+
+    //Whole raster scaled to fit in maxSide x maxSide, never enlarged
+    public static FxRaster preview(CompactRaster raster, int maxSide) {
+        int w = fit(raster.width(), raster, maxSide), h = fit(raster.height(), raster, maxSide);
+        //Expanded pixels are opaque, so they are already premultiplied
+        return FxRaster.wrap(raster.sample(w, h), w, h);
+    }
+
+    //A decoded input image scaled the same way; unlike results, inputs may have transparent pixels
+    public static FxRaster preview(BufferedImage image, int maxSide) {
+        CompactRaster raster = CompactRaster.of(image);
+        int w = fit(raster.width(), raster, maxSide), h = fit(raster.height(), raster, maxSide);
+        return FxRaster.wrapStraight(raster.sample(w, h), w, h);
+    }
+
+    //Redraws an existing preview in place if it has the size this raster needs; returns false if it does not
+    public static boolean update(FxRaster target, CompactRaster raster, int maxSide) {
+        int w = fit(raster.width(), raster, maxSide), h = fit(raster.height(), raster, maxSide);
+        if (target.width() != w || target.height() != h) return false;
+        raster.sample(w, h, target.pixels());
+        target.refresh();
+        return true;
+    }
+
+    private static int fit(int side, CompactRaster raster, int maxSide) {
+        double scale = Math.min(1.0, maxSide / (double) Math.max(raster.width(), raster.height()));
+        return Math.max(1, (int) Math.round(side * scale));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.seniorproject.view;
+
+import com.example.seniorproject.model.analysis.CompactRaster;
+import com.example.seniorproject.model.analysis.MipmapPyramid;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/*
+ Pannable, zoomable view of a large raster that draws only the tiles on screen
+ The viewer picks the pyramid level whose pixels are closest to screen pixels and draws the visible tiles of it.
+ Missing tiles are built on background threads and the view redraws as they arrive; until then a small preview of
+ the whole raster stands in. Drag to pan, scroll to zoom around the cursor; beyond 1:1 pixels are drawn as blocks.
+*/
+public final class TiledImageViewer extends Region {
+
+    //Up to 16 screen pixels per image pixel
+    private static final double MAX_SCALE = 16;
+    private static final double ZOOM_STEP = 1.25;
+    //FX images of recently drawn tiles, so a redraw does not convert them again
+    private static final int MAX_FX_TILES = 128;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService TILE_WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "tile-worker-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final MipmapPyramid pyramid;
+    private final Image placeholder;
+    private final Canvas canvas = new Canvas();
+    private final Map<Long, Image> fxTiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > MAX_FX_TILES;
+        }
+    };
+    //Tiles the last redraw wanted but did not have; queued builds for anything else are skipped
+    private volatile Set<Long> wanted = Set.of();
+    private final Set<Long> requested = new HashSet<>();
+
+    //Screen pixels per image pixel, and the image point drawn at the top-left corner
+    private double scale;
+    private double originX;
+    private double originY;
+    private double dragX;
+    private double dragY;
+
+    public TiledImageViewer(CompactRaster raster, Image placeholder, double width, double height) {
+        this.pyramid = MipmapPyramid.of(raster);
+        this.placeholder = placeholder;
+        getChildren().add(canvas);
+        setPrefSize(width, height);
+        scale = Math.min(width / raster.width(), height / raster.height());
+
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        setOnMouseDragged(e -> {
+            originX -= (e.getX() - dragX) / scale;
+            originY -= (e.getY() - dragY) / scale;
+            dragX = e.getX();
+            dragY = e.getY();
+            redraw();
+        });
+        setOnScroll(e -> zoom(e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, e.getX(), e.getY()));
+        //Queued builds stop once the dialog is gone
+        sceneProperty().addListener((obs, old, scene) -> {
+            if (scene == null) wanted = Set.of();
+        });
+    }
+
+    //Zooms by factor, keeping the image point under (x, y) in place
+    public void zoom(double factor, double x, double y) {
+        double fit = Math.min(getWidth() / pyramid.source().width(), getHeight() / pyramid.source().height());
+        double next = Math.max(Math.min(fit, 1), Math.min(MAX_SCALE, scale * factor));
+        originX += x / scale - x / next;
+        originY += y / scale - y / next;
+        scale = next;
+        redraw();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        redraw();
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setImageSmoothing(scale < 1);
+        g.setFill(Color.gray(0.15));
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        CompactRaster raster = pyramid.source();
+        g.drawImage(placeholder, -originX * scale, -originY * scale, raster.width() * scale, raster.height() * scale);
+
+        //Coarsest level that still has at least one level pixel per screen pixel
+        int level = 0;
+        while (level + 1 < pyramid.levels() && scale * (1 << (level + 1)) <= 1) level++;
+        double tileSide = (double) MipmapPyramid.TILE * (1 << level);
+        int firstX = Math.max(0, (int) Math.floor(originX / tileSide));
+        int firstY = Math.max(0, (int) Math.floor(originY / tileSide));
+        int lastX = Math.min(pyramid.tilesX(level) - 1, (int) Math.floor((originX + canvas.getWidth() / scale) / tileSide));
+        int lastY = Math.min(pyramid.tilesY(level) - 1, (int) Math.floor((originY + canvas.getHeight() / scale) / tileSide));
+
+        Set<Long> missing = new HashSet<>();
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                Image tile = fxTile(level, tx, ty);
+                if (tile == null) {
+                    missing.add(key(level, tx, ty));
+                    continue;
+                }
+                double size = (1 << level) * scale;
+                g.drawImage(tile, (tx * tileSide - originX) * scale, (ty * tileSide - originY) * scale,
+                        tile.getWidth() * size, tile.getHeight() * size);
+            }
+        }
+        wanted = missing;
+        for (long key : missing) request(key);
+    }
+
+    private Image fxTile(int level, int tx, int ty) {
+        long key = key(level, tx, ty);
+        Image cached = fxTiles.get(key);
+        if (cached != null) return cached;
+        int[] pixels = pyramid.cachedTile(level, tx, ty);
+        if (pixels == null) return null;
+
+        int w = pyramid.tileWidth(level, tx), h = pyramid.tileHeight(level, ty);
+        WritableImage image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), pixels, 0, w);
+        fxTiles.put(key, image);
+        return image;
+    }
+
+    //Builds a tile in the background unless it is already queued or no longer on screen by the time it runs
+    private void request(long key) {
+        if (!requested.add(key)) return;
+        TILE_WORKERS.execute(() -> {
+            if (wanted.contains(key)) {
+                pyramid.tile((int) (key >>> 56), (int) (key & 0xFFFFFFF), (int) ((key >>> 28) & 0xFFFFFFF));
+            }
+            Platform.runLater(() -> {
+                requested.remove(key);
+                if (getScene() != null) redraw();
+            });
+        });
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) level << 56) | ((long) ty << 28) | tx;
+    }
+}
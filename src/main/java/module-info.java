@@ -4,6 +4,7 @@ module com.example.seniorproject {
     requires transitive javafx.graphics;
     requires javafx.swing;
     requires transitive java.desktop;
+    requires jdk.jfr;
 
     requires org.controlsfx.controls;
 
@@ -11,6 +12,8 @@ module com.example.seniorproject {
     exports com.example.seniorproject;
     exports com.example.seniorproject.model;
     exports com.example.seniorproject.model.algorithm;
+    exports com.example.seniorproject.model.analysis;
+    exports com.example.seniorproject.model.metrics;
     opens com.example.seniorproject.model to javafx.fxml;
     opens com.example.seniorproject.model.algorithm to javafx.fxml;
     opens com.example.seniorproject.view to javafx.fxml;
@@ -5,7 +5,13 @@ import org.junit.jupiter.api.Test;
 
 import java.awt.image.BufferedImage;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -95,6 +101,21 @@ class AlgorithmTest {
         assertEquals(pixelBefore, cover.getRGB(0, 0));
     }
 
+    //Parallel spans must produce the same stego pixels as the serial loop, and both modes read each other's output
+    @Test
+    void lsb_parallel_matchesSerial() {
+        BufferedImage cover = createTestImage(400, 400);
+        byte[] secret = new byte[55_555];
+        new Random(3).nextBytes(secret);
+
+        BufferedImage serial = new LSBAlgorithm().embed(cover, secret);
+        BufferedImage parallel = new LSBAlgorithm(true).embed(cover, secret);
+
+        assertArrayEquals(serial.getRGB(0, 0, 400, 400, null, 0, 400), parallel.getRGB(0, 0, 400, 400, null, 0, 400));
+        assertArrayEquals(secret, new LSBAlgorithm(true).extract(serial));
+        assertArrayEquals(secret, new LSBAlgorithm().extract(parallel));
+    }
+
     //Randomized LSB round-trip tests
     //Both embed and extract must use the same key to agree on pixel order
     @Test
@@ -149,6 +170,21 @@ class AlgorithmTest {
         assertTrue(anyDiff, "Different keys should scatter data differently");
     }
 
+    //Parallel mode must write exactly the same pixels as the serial loop, and each mode must read the other's output
+    @Test
+    void randomized_parallel_matchesSerial() {
+        BufferedImage cover = createTestImage(300, 300);
+        byte[] secret = new byte[30_000];
+        new Random(7).nextBytes(secret);
+
+        BufferedImage serial = new RandomizedLSBAlgorithm(42).embed(cover, secret);
+        BufferedImage parallel = new RandomizedLSBAlgorithm(42, true).embed(cover, secret);
+
+        assertArrayEquals(serial.getRGB(0, 0, 300, 300, null, 0, 300), parallel.getRGB(0, 0, 300, 300, null, 0, 300));
+        assertArrayEquals(secret, new RandomizedLSBAlgorithm(42, true).extract(serial));
+        assertArrayEquals(secret, new RandomizedLSBAlgorithm(42).extract(parallel));
+    }
+
     //Josephus LSB 3-3-2 round-trip tests
     @Test
     void josephus_embedAndExtract_textMessage() {
@@ -202,6 +238,251 @@ class AlgorithmTest {
         assertTrue(anyDiff, "Different keys should scatter data differently");
     }
 
+    //Josephus LSB 3-3-2 v2 round-trip tests
+    @Test
+    void josephusV2_embedAndExtract_largePayload() {
+        BufferedImage cover = createTestImage(200, 150);
+        byte[] secret = new byte[25_000];
+        new Random(11).nextBytes(secret);
+
+        BufferedImage stego = new JosephusLSB332V2Algorithm(42).embed(cover, secret);
+        byte[] extracted = new JosephusLSB332V2Algorithm(42).extract(stego);
+
+        assertArrayEquals(secret, extracted);
+    }
+
+    //A full image worth of slots must land on every pixel exactly once, otherwise bytes would overwrite each other
+    @Test
+    void josephusV2_fillsImageToCapacity() {
+        BufferedImage cover = createTestImage(37, 23);
+        byte[] secret = new byte[37 * 23 - 7];
+        new Random(12).nextBytes(secret);
+
+        BufferedImage stego = new JosephusLSB332V2Algorithm(-5).embed(cover, secret);
+
+        assertArrayEquals(secret, new JosephusLSB332V2Algorithm(-5).extract(stego));
+    }
+
+    //Version 1 and version 2 use different magic bytes, so neither reads the other's images
+    @Test
+    void josephusV2_rejectsVersion1Images() {
+        BufferedImage cover = createTestImage(20, 20);
+        byte[] secret = "versioned".getBytes(StandardCharsets.UTF_8);
+
+        BufferedImage v1 = new JosephusLSB332Algorithm(42).embed(cover, secret);
+        BufferedImage v2 = new JosephusLSB332V2Algorithm(42).embed(cover, secret);
+
+        assertThrows(IllegalStateException.class, () -> new JosephusLSB332V2Algorithm(42).extract(v1));
+        assertThrows(IllegalStateException.class, () -> new JosephusLSB332Algorithm(42).extract(v2));
+    }
+
+    @Test
+    void josephusV2_wrongKey_throws() {
+        BufferedImage cover = createTestImage(20, 20);
+        byte[] secret = "secret message".getBytes(StandardCharsets.UTF_8);
+
+        BufferedImage stego = new JosephusLSB332V2Algorithm(42).embed(cover, secret);
+
+        assertThrows(IllegalStateException.class,
+                () -> new JosephusLSB332V2Algorithm(99).extract(stego));
+    }
+
+    //k-bit LSB round-trip tests
+    //Every supported k, with and without alpha, including k = 3 where bytes straddle channel boundaries
+    @Test
+    void kBit_embedAndExtract_allModes() {
+        BufferedImage cover = createTestImage(40, 40);
+        byte[] secret = new byte[500];
+        new Random(21).nextBytes(secret);
+
+        for (int k = 1; k <= 4; k++) {
+            for (boolean alpha : new boolean[]{false, true}) {
+                KBitLSBAlgorithm alg = new KBitLSBAlgorithm(k, alpha);
+                byte[] extracted = alg.extract(alg.embed(cover, secret));
+                assertArrayEquals(secret, extracted, "k=" + k + ", alpha=" + alpha);
+            }
+        }
+    }
+
+    //k = 1 without alpha uses exactly the sequential LSB layout
+    @Test
+    void kBit_oneBit_readsSequentialLsb() {
+        BufferedImage cover = createTestImage(20, 20);
+        byte[] secret = "same layout".getBytes(StandardCharsets.UTF_8);
+
+        BufferedImage stego = new LSBAlgorithm().embed(cover, secret);
+
+        assertArrayEquals(secret, new KBitLSBAlgorithm(1, false).extract(stego));
+    }
+
+    //4 bits per channel should leave the upper nibble of every channel untouched
+    @Test
+    void kBit_fourBits_onlyTouchesLowNibble() {
+        BufferedImage cover = createTestImage(20, 20);
+        byte[] secret = new byte[400];
+        new Random(22).nextBytes(secret);
+
+        BufferedImage stego = new KBitLSBAlgorithm(4, false).embed(cover, secret);
+
+        for (int y = 0; y < 20; y++)
+            for (int x = 0; x < 20; x++)
+                assertEquals(cover.getRGB(x, y) & 0xFFF0F0F0, stego.getRGB(x, y) & 0xFFF0F0F0);
+    }
+
+    @Test
+    void kBit_invalidBitCount_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new KBitLSBAlgorithm(0, false));
+        assertThrows(IllegalArgumentException.class, () -> new KBitLSBAlgorithm(5, true));
+    }
+
+    //Execution context: progress is reported in payload bytes and a cancelled run stops with CancellationException
+    @Test
+    void context_reportsProgressUpToPayloadSize() {
+        BufferedImage cover = createTestImage(200, 200);
+        byte[] secret = new byte[12_000];
+        AtomicLong lastDone = new AtomicLong();
+        AtomicLong lastTotal = new AtomicLong();
+        ExecutionContext context = ExecutionContext.of((done, total) -> {
+            lastDone.accumulateAndGet(done, Math::max);
+            lastTotal.set(total);
+        }, () -> false);
+
+        new JosephusLSB332V2Algorithm(42).embed(cover, secret, context);
+
+        assertEquals(secret.length, lastTotal.get());
+        assertEquals(secret.length, lastDone.get());
+    }
+
+    @Test
+    void context_cancelled_stopsEveryAlgorithm() {
+        BufferedImage cover = createTestImage(200, 200);
+        byte[] secret = new byte[5_000];
+        ExecutionContext cancelled = ExecutionContext.of(ProgressSink.NONE, () -> true);
+        SteganographyAlgorithm[] algorithms = {new LSBAlgorithm(true), new RandomizedLSBAlgorithm(1, true),
+                new JosephusLSB332Algorithm(1), new JosephusLSB332V2Algorithm(1), new KBitLSBAlgorithm(2, false)};
+
+        for (SteganographyAlgorithm alg : algorithms) {
+            assertThrows(CancellationException.class, () -> alg.embed(cover, secret, cancelled),
+                    alg.getClass().getSimpleName());
+        }
+    }
+
+    //A token cancelled from another thread mid-extract, and a deadline that has already passed, both stop the run
+    @Test
+    void context_tokenAndDeadline_stopRun() {
+        BufferedImage cover = createTestImage(200, 200);
+        byte[] secret = new byte[5_000];
+        CancellationToken token = new CancellationToken();
+        BufferedImage stego = new RandomizedLSBAlgorithm(3).embed(cover, secret,
+                ExecutionContext.of(ProgressSink.NONE, token));
+
+        //The first progress report has a second thread cancel and waits for it, so the flag flips mid-run
+        ProgressSink cancelOnFirstProgress = (done, total) -> {
+            if (done <= 0 || token.isCancelled()) return;
+            Thread canceller = new Thread(token::cancel);
+            canceller.start();
+            try {
+                canceller.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        assertThrows(CancellationException.class, () -> new RandomizedLSBAlgorithm(3).extract(stego,
+                ExecutionContext.of(cancelOnFirstProgress, token)));
+        assertTrue(token.isCancelled());
+        assertThrows(DeadlineExceededException.class, () -> new RandomizedLSBAlgorithm(3).extract(stego,
+                ExecutionContext.of(ProgressSink.NONE, () -> false, Duration.ZERO)));
+        assertArrayEquals(secret, new RandomizedLSBAlgorithm(3).extract(stego,
+                ExecutionContext.NONE.withTimeout(Duration.ofMinutes(1))));
+    }
+
+    //Every algorithm returns the same bytes for a range as the full extraction, and rejects ranges past the payload
+    @Test
+    void extractRange_matchesFullExtraction() {
+        BufferedImage cover = createTestImage(120, 120);
+        byte[] secret = new byte[3_000];
+        new Random(7).nextBytes(secret);
+        for (SteganographyAlgorithm alg : List.of(new LSBAlgorithm(true), new RandomizedLSBAlgorithm(9, true),
+                new JosephusLSB332V2Algorithm(9), new KBitLSBAlgorithm(2, false))) {
+            BufferedImage stego = alg.embed(cover, secret);
+            assertArrayEquals(Arrays.copyOfRange(secret, 1234, 1234 + 500),
+                    alg.extractRange(stego, 1234, 500, ExecutionContext.NONE), alg.getClass().getSimpleName());
+            assertEquals(0, alg.extractRange(stego, secret.length, 0, ExecutionContext.NONE).length);
+            assertThrows(IndexOutOfBoundsException.class, () -> alg.extractRange(stego, 2_900, 101, ExecutionContext.NONE));
+        }
+    }
+
+    //Without a ranged implementation, one reader extracts the payload once however many ranges it serves
+    @Test
+    void payloadReader_defaultExtractsOnce() {
+        KBitLSBAlgorithm kBit = new KBitLSBAlgorithm(2, false);
+        AtomicInteger extractions = new AtomicInteger();
+        SteganographyAlgorithm counting = new SteganographyAlgorithm() {
+            @Override
+            public BufferedImage embed(BufferedImage coverImage, byte[] secret, ExecutionContext context) {
+                return kBit.embed(coverImage, secret, context);
+            }
+
+            @Override
+            public byte[] extract(BufferedImage stegoImage, ExecutionContext context) {
+                extractions.incrementAndGet();
+                return kBit.extract(stegoImage, context);
+            }
+
+            @Override
+            public int capacity(BufferedImage coverImage) {
+                return kBit.capacity(coverImage);
+            }
+        };
+        byte[] secret = new byte[2_000];
+        new Random(8).nextBytes(secret);
+        BufferedImage stego = counting.embed(createTestImage(80, 80), secret);
+
+        SteganographyAlgorithm.PayloadReader reader = counting.payloadReader(stego, ExecutionContext.NONE);
+        assertEquals(0, extractions.get());
+        for (int offset = 0; offset < secret.length; offset += 500) {
+            assertArrayEquals(Arrays.copyOfRange(secret, offset, offset + 500), reader.read(offset, 500));
+        }
+        assertEquals(1, extractions.get());
+    }
+
+    //One payload through the multi-payload path gives the same pixels as a plain embed; several stay readable by key
+    @Test
+    void multiPayload_matchesPlainEmbedAndKeepsEveryKeyReadable() {
+        BufferedImage cover = createTestImage(300, 300);
+        byte[] secret = "one pass".getBytes(StandardCharsets.UTF_8);
+        for (SteganographyAlgorithm alg : List.of(new RandomizedLSBAlgorithm(3), new JosephusLSB332Algorithm(3),
+                new JosephusLSB332V2Algorithm(3))) {
+            BufferedImage single = MultiPayloadEmbedder.embed(cover, List.of(new MultiPayloadEmbedder.Payload(alg, secret)),
+                    ExecutionContext.NONE);
+            assertArrayEquals(alg.embed(cover, secret).getRGB(0, 0, 300, 300, null, 0, 300),
+                    single.getRGB(0, 0, 300, 300, null, 0, 300), alg.getClass().getSimpleName());
+        }
+
+        List<MultiPayloadEmbedder.Payload> payloads = List.of(
+                new MultiPayloadEmbedder.Payload(new RandomizedLSBAlgorithm(3), "first".getBytes(StandardCharsets.UTF_8)),
+                new MultiPayloadEmbedder.Payload(new JosephusLSB332V2Algorithm(5), "second".getBytes(StandardCharsets.UTF_8)),
+                new MultiPayloadEmbedder.Payload(new JosephusLSB332Algorithm(8), "third".getBytes(StandardCharsets.UTF_8)));
+        BufferedImage stego = MultiPayloadEmbedder.embed(cover, payloads, ExecutionContext.NONE);
+        for (MultiPayloadEmbedder.Payload payload : payloads) {
+            assertArrayEquals(payload.secret(), payload.algorithm().extract(stego));
+        }
+    }
+
+    //Payloads that need different values in the same bits are refused rather than overwritten
+    @Test
+    void multiPayload_rejectsCollidingPositionStreams() {
+        BufferedImage cover = createTestImage(100, 100);
+        byte[] a = new byte[3_000], b = new byte[3_000];
+        new Random(1).nextBytes(a);
+        new Random(2).nextBytes(b);
+        assertThrows(IllegalArgumentException.class, () -> MultiPayloadEmbedder.embed(cover, List.of(
+                new MultiPayloadEmbedder.Payload(new JosephusLSB332V2Algorithm(1), a),
+                new MultiPayloadEmbedder.Payload(new JosephusLSB332V2Algorithm(2), b)), ExecutionContext.NONE));
+        assertThrows(IllegalArgumentException.class, () -> MultiPayloadEmbedder.embed(cover, List.of(
+                new MultiPayloadEmbedder.Payload(new LSBAlgorithm(), a)), ExecutionContext.NONE));
+    }
+
     //Creates a synthetic ARGB image (seed = 42) - every test run produces the same image, so results are reproducible
     static BufferedImage createTestImage(int w, int h) {
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
@@ -1,10 +1,38 @@
 package com.example.seniorproject;
 
 import com.example.seniorproject.model.*;
+import com.example.seniorproject.model.algorithm.DeadlineExceededException;
+import com.example.seniorproject.model.algorithm.ExecutionContext;
+import com.example.seniorproject.model.algorithm.KBitLSBAlgorithm;
+import com.example.seniorproject.model.algorithm.LSBAlgorithm;
+import com.example.seniorproject.model.analysis.*;
+import com.example.seniorproject.model.metrics.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
 
 import static com.example.seniorproject.AlgorithmTest.createTestImage;
 import static org.junit.jupiter.api.Assertions.*;
@@ -52,6 +80,16 @@ class ModelTest {
         assertArrayEquals(secret, extracted);
     }
 
+    @Test
+    void routing_josephusLsb332V2() {
+        byte[] secret = "Josephus v2 test".getBytes(StandardCharsets.UTF_8);
+
+        BufferedImage stego = embedder.embed(createTestImage(20, 20), secret, "Josephus LSB 3-3-2 v2", 42);
+        byte[] extracted = extractor.extract(stego, "Josephus LSB 3-3-2 v2", 42);
+
+        assertArrayEquals(secret, extracted);
+    }
+
     // Passing an algorithm name the model doesn't recognise should throw immediately
     @Test
     void routing_unknownAlgorithm_throws() {
@@ -82,6 +120,37 @@ class ModelTest {
         assertFalse(ExtractingModel.isPngBytes(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8}));
     }
 
+    // JPEG and GIF secrets are passed through untouched, so they must be recognised as images too
+    @Test
+    void isImageBytes_jpegAndGif() {
+        assertTrue(ExtractingModel.isImageBytes(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        assertTrue(ExtractingModel.isImageBytes("GIF89a".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(ExtractingModel.isImageBytes("plain text".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void isUtf8Text_rejectsBinary() {
+        assertTrue(ExtractingModel.isUtf8Text("héllo".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(ExtractingModel.isUtf8Text(new byte[]{(byte) 0xC3, 0x28, (byte) 0xFF}));
+    }
+
+    // --- Secret file ingestion ---
+    // Secret files are memory-mapped and must survive embed -> extract byte-for-byte, whatever their type
+
+    @Test
+    void readSecretFile_passesBytesThroughUnchanged(@TempDir Path dir) throws IOException {
+        byte[] content = new byte[3000];
+        new Random(8).nextBytes(content);
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        Path file = Files.write(dir.resolve("secret.jpg"), content);
+
+        byte[] secret = embedder.readSecretFile(file.toFile());
+        BufferedImage stego = embedder.embed(createTestImage(120, 120), secret, "LSB", 0);
+
+        assertArrayEquals(content, extractor.extract(stego, "LSB", 0));
+    }
+
     // --- LSB X-ray ---
     // The X-ray amplifies the least-significant bit of each channel to 0 or 255
     // so hidden data patterns become visible.
@@ -92,7 +161,7 @@ class ModelTest {
         // 0x52 = 0101_0010 → LSB 0, 0xA1 = 1010_0001 → LSB 1, 0xC0 = 1100_0000 → LSB 0
         img.setRGB(0, 0, 0xFF_52_A1_C0);
 
-        BufferedImage result = analyzer.lsbXray(img);
+        BufferedImage result = analyzer.bitPlanes(img).render(0);
         int rgb = result.getRGB(0, 0);
 
         assertEquals(0, (rgb >> 16) & 0xFF);
@@ -160,6 +229,223 @@ class ModelTest {
         assertEquals(3.0, mse, 0.001);
     }
 
+    // --- Dirty regions ---
+
+    @Test
+    void dirtyRegions_identicalImagesSkipAllWork() {
+        BufferedImage img = createTestImage(40, 40);
+
+        DirtyRegions regions = analyzer.dirtyRegions(img, img);
+
+        assertTrue(regions.identical());
+        assertNull(regions.bounds());
+        assertEquals(0.0, analyzer.calculateMse(regions));
+        assertEquals(0, analyzer.differenceHeatmap(regions).modifiedPixels());
+    }
+
+    // A short sequential message only touches the first rows
+    @Test
+    void dirtyRegions_shortLsbMessageIsATopBand() {
+        BufferedImage cover = createTestImage(100, 100);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(40));
+
+        DirtyRegions regions = analyzer.dirtyRegions(cover, stego);
+
+        assertEquals(1, regions.rectangles().size());
+        DirtyRegions.Rect band = regions.bounds();
+        assertEquals(0, band.y());
+        assertTrue(band.height() <= 2, "rows " + band.height());
+        assertEquals(band, regions.rectangles().get(0));
+        assertTrue(regions.dirtyPixels() < 200);
+    }
+
+    // Different raster types fall back to getRGB rows and must give the same answers
+    @Test
+    void dirtyRegions_matchFullComparisonAcrossImageTypes() {
+        BufferedImage cover = createTestImage(70, 50);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(900));
+        BufferedImage rgbCover = new BufferedImage(70, 50, BufferedImage.TYPE_INT_RGB);
+        rgbCover.getGraphics().drawImage(cover, 0, 0, null);
+
+        long squares = 0;
+        int modified = 0;
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 70; x++) {
+                int o = cover.getRGB(x, y), s = stego.getRGB(x, y);
+                if ((o & 0xFFFFFF) != (s & 0xFFFFFF)) modified++;
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int d = ((o >> shift) & 0xFF) - ((s >> shift) & 0xFF);
+                    squares += d * d;
+                }
+            }
+        }
+        for (BufferedImage original : new BufferedImage[]{cover, rgbCover}) {
+            assertEquals(squares / (70.0 * 50 * 3), analyzer.calculateMse(original, stego), 1e-12);
+            assertEquals(modified, analyzer.differenceHeatmap(original, stego).modifiedPixels());
+        }
+    }
+
+    // --- Modified pixel index ---
+
+    @Test
+    void modifiedIndex_answersQueriesLikeAPlainScan() {
+        BufferedImage cover = createTestImage(300, 500);
+        BufferedImage dense = new LSBAlgorithm().embed(cover, randomBytes(20000));
+        BufferedImage sparse = new BufferedImage(300, 500, BufferedImage.TYPE_INT_ARGB);
+        sparse.setRGB(0, 0, 300, 500, cover.getRGB(0, 0, 300, 500, null, 0, 300), 0, 300);
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(300), y = random.nextInt(500);
+            sparse.setRGB(x, y, sparse.getRGB(x, y) ^ 1);
+        }
+
+        ModifiedPixelIndex a = analyzer.modifiedPixelIndex(analyzer.dirtyRegions(cover, dense));
+        ModifiedPixelIndex b = analyzer.modifiedPixelIndex(analyzer.dirtyRegions(cover, sparse));
+
+        assertEquals(analyzer.differenceHeatmap(cover, dense).modifiedPixels(), a.cardinality());
+        assertEquals(analyzer.differenceHeatmap(cover, sparse).modifiedPixels(), b.cardinality());
+        assertTrue(a.sizeInBytes() < 300 * 500 / 4);
+
+        long both = 0, either = 0, onlyA = 0, rect = 0;
+        long[] tiles = new long[4 * 7];
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 300; x++) {
+                boolean inA = dense.getRGB(x, y) != cover.getRGB(x, y), inB = sparse.getRGB(x, y) != cover.getRGB(x, y);
+                assertEquals(inA, a.contains(x, y));
+                if (inA && inB) both++;
+                if (inA || inB) either++;
+                if (inA && !inB) onlyA++;
+                if (inA && x >= 10 && x < 210 && y >= 100 && y < 130) rect++;
+                if (inA) tiles[(y / 80) * 4 + x / 80]++;
+            }
+        }
+        assertEquals(both, a.and(b).cardinality());
+        assertEquals(either, a.or(b).cardinality());
+        assertEquals(onlyA, a.andNot(b).cardinality());
+        assertEquals(either - both, a.xor(b).cardinality());
+        assertEquals(rect, a.countInRect(10, 100, 200, 30));
+        assertArrayEquals(tiles, a.tileCounts(80));
+    }
+
+    // --- SSIM ---
+
+    @Test
+    void ssim_identicalImagesScoreOne() {
+        BufferedImage img = createTestImage(300, 200);
+
+        Ssim.Result result = analyzer.structuralSimilarity(img, img);
+
+        assertEquals(1.0, result.ssim(), 1e-12);
+        assertEquals(1.0, result.msSsim(), 1e-12);
+        assertEquals(5, result.scales());
+    }
+
+    // The summed-area tables must give the same mean as recomputing every window directly
+    @Test
+    void ssim_matchesDirectWindowComputation() {
+        BufferedImage cover = createTestImage(40, 30);
+        BufferedImage noisy = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(5);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                noisy.setRGB(x, y, cover.getRGB(x, y) ^ random.nextInt(16) * 0x010101);
+            }
+        }
+
+        double c1 = 6.5025, c2 = 58.5225, total = 0;
+        int windows = 0;
+        for (int wy = 0; wy + 8 <= 30; wy++) {
+            for (int wx = 0; wx + 8 <= 40; wx++) {
+                double sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+                for (int y = wy; y < wy + 8; y++) {
+                    for (int x = wx; x < wx + 8; x++) {
+                        int a = luma(cover.getRGB(x, y)), b = luma(noisy.getRGB(x, y));
+                        sx += a; sy += b; sxx += a * a; syy += b * b; sxy += a * b;
+                    }
+                }
+                double mx = sx / 64, my = sy / 64;
+                double vx = sxx / 64 - mx * mx, vy = syy / 64 - my * my, cov = sxy / 64 - mx * my;
+                total += (2 * mx * my + c1) * (2 * cov + c2) / ((mx * mx + my * my + c1) * (vx + vy + c2));
+                windows++;
+            }
+        }
+
+        Ssim.Result result = analyzer.structuralSimilarity(cover, noisy);
+        assertEquals(total / windows, result.ssim(), 1e-9);
+        assertTrue(result.ssim() < 1);
+        // 40x30 halves to 20x15 and then 10x7, which is below one window
+        assertEquals(2, result.scales());
+
+        // From a shared DirtyRegions scan the value is the same, whether rows are read directly or through getRGB
+        BufferedImage partlyArgb = createTestImage(40, 30), partlyBgr = new BufferedImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 12; y < 15; y++) partlyArgb.setRGB(0, y, 40, 1, noisy.getRGB(0, y, 40, 1, null, 0, 40), 0, 40);
+        partlyBgr.setRGB(0, 0, 40, 30, partlyArgb.getRGB(0, 0, 40, 30, null, 0, 40), 0, 40);
+        Ssim.Result direct = analyzer.structuralSimilarity(analyzer.dirtyRegions(cover, partlyArgb));
+        assertEquals(direct, analyzer.structuralSimilarity(analyzer.dirtyRegions(cover, partlyBgr)));
+        assertTrue(direct.ssim() < 1 && direct.ssim() > result.ssim());
+    }
+
+    private static int luma(int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF) + 128) >> 8;
+    }
+
+    // --- Progressive comparison ---
+    // Coarse passes give intervals around the true values; the last pass must land exactly on the full computation
+
+    @Test
+    void progressive_convergesToExactMetricsAndHeatmap() {
+        BufferedImage cover = createTestImage(150, 130);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(3000));
+        ProgressiveComparison comparison = new ProgressiveComparison(cover, stego, 50, 42);
+
+        ProgressiveComparison.Estimate first = comparison.refine();
+        assertTrue(first.samples() >= 9 && first.samples() < first.pixels());
+        int passes = 1;
+        while (comparison.hasNext()) {
+            comparison.refine();
+            passes++;
+        }
+        ProgressiveComparison.Estimate last = comparison.estimate();
+
+        assertEquals(ProgressiveComparison.passes(), passes);
+        assertTrue(last.exact());
+        assertEquals(analyzer.calculateMse(cover, stego), last.mse(), 1e-12);
+        assertEquals(last.mse(), last.mseLow(), 1e-12);
+        ByteHeatmap full = analyzer.differenceHeatmap(cover, stego).image();
+        ByteHeatmap progressive = comparison.exactHeatmap();
+        assertEquals(full.modifiedPixels(), progressive.modifiedPixels());
+        assertArrayEquals(full.expand(0, 0, 150, 130), progressive.expand(0, 0, 150, 130));
+    }
+
+    @Test
+    void progressive_intervalsCoverTheExactValues() {
+        BufferedImage cover = createTestImage(256, 256);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(256 * 256 * 3 / 16));
+        double mse = analyzer.calculateMse(cover, stego);
+        double ratio = analyzer.differenceHeatmap(cover, stego).modifiedPixels() / (256.0 * 256);
+
+        ProgressiveComparison comparison = new ProgressiveComparison(cover, stego, 50, 7);
+        for (int pass = 0; pass < 4; pass++) {
+            ProgressiveComparison.Estimate e = comparison.refine();
+            assertTrue(e.mseLow() <= mse && mse <= e.mseHigh(), "pass " + pass);
+            assertTrue(e.modifiedLow() <= ratio && ratio <= e.modifiedHigh(), "pass " + pass);
+        }
+    }
+
+    // A 1-pixel-wide edge block holds 64 of 4160 pixels; its single first-pass sample must not count as much as the full block's
+    @Test
+    void progressive_weightsPartialEdgeBlocksByTheirPixels() {
+        BufferedImage cover = new BufferedImage(65, 64, BufferedImage.TYPE_INT_RGB);
+        BufferedImage stego = new BufferedImage(65, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) stego.setRGB(64, y, 0x0A0A0A);
+
+        ProgressiveComparison.Estimate first = new ProgressiveComparison(cover, stego, 50, 3).refine();
+
+        assertEquals(2, first.samples());
+        assertEquals(analyzer.calculateMse(cover, stego), first.mse(), 1e-12);
+        assertEquals(64 / 4160.0, first.modifiedRatio(), 1e-12);
+    }
+
     // --- PSNR (Peak Signal-to-Noise Ratio) ---
     // PSNR is derived from MSE: PSNR = 10 * log10(255² / MSE).
     // Higher PSNR means less visible distortion; infinity when images are identical.
@@ -197,4 +483,619 @@ class ModelTest {
     void formatBytes_megabytes() {
         assertEquals("2.00 MB", analyzer.formatBytes(2 * 1024 * 1024));
     }
+
+    // --- Phase metrics ---
+    // Every phase commits a JFR event and lands in the global registry and the optional per-run log
+
+    @Test
+    void phase_recordsRegistryAndLog() {
+        MetricsRegistry.global().reset();
+        PhaseLog log = new PhaseLog();
+
+        int result = Phase.measure("test phase", new PhaseTags("LSB", 10, 10, 100), log, () -> 42);
+
+        assertEquals(42, result);
+        assertEquals(1, MetricsRegistry.global().timer("phase.test phase").count());
+        assertEquals(100, MetricsRegistry.global().counter("phase.test phase.bytes").value());
+        assertEquals(1, log.entries().size());
+        assertTrue(log.format().startsWith("test phase "));
+
+        // The stats line breakdown lists each phase with its count, then the other counters
+        MetricsRegistry.global().counter("test.hits").increment();
+        String breakdown = MetricsRegistry.global().format();
+        assertTrue(breakdown.startsWith("test phase 1× "), breakdown);
+        assertTrue(breakdown.endsWith("; test.hits 1"), breakdown);
+        assertEquals("KBitLSBAlgorithm(k=2, alpha)", new KBitLSBAlgorithm(2, true).metricsName());
+    }
+
+    // An LSB embed emits copy, embed loop and checksum events tagged with the algorithm and image size
+    @Test
+    void phase_emitsJfrEvents(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("phases.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.seniorproject.Phase");
+            recording.start();
+            embedder.embed(createTestImage(20, 20), "jfr".getBytes(StandardCharsets.UTF_8), "LSB", 0);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<String> phases = events.stream().map(e -> e.getString("phase")).toList();
+        assertTrue(phases.containsAll(List.of("copy", "embed loop", "checksum")));
+        RecordedEvent loop = events.get(phases.indexOf("embed loop"));
+        assertEquals("LSBAlgorithm", loop.getString("algorithm"));
+        assertEquals(20, loop.getInt("width"));
+        assertEquals(3, loop.getLong("payloadBytes"));
+    }
+
+    // --- Blind steganalysis ---
+    // Chi-square and RS only see the stego image; covers are built so the expected answer is clear
+
+    // Only even values: every pair (2k, 2k+1) is as uneven as it can be until LSB embedding fills in the odd half
+    private static BufferedImage evenCover(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(11);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                img.setRGB(x, y, (100 + 2 * random.nextInt(16)) * 0x010101);
+            }
+        }
+        return img;
+    }
+
+    // Smooth gradients plus a little noise, close enough to a photo for RS
+    private static BufferedImage smoothCover(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(7);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double v = 128 + 60 * Math.sin(x / 37.0) + 40 * Math.cos(y / 23.0 + x / 51.0);
+                int r = clamp(v + random.nextGaussian() * 3);
+                int g = clamp(v * 0.8 + 20 + random.nextGaussian() * 3);
+                int b = clamp(v * 0.6 + 40 + random.nextGaussian() * 3);
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, Math.round(v)));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(3).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void histograms_countEveryPixelOncePerChannel() {
+        BufferedImage img = createTestImage(37, 23);
+
+        ChannelHistograms histograms = ChannelHistograms.of(img, 5);
+
+        long[] total = histograms.total();
+        for (int c = 0; c < ChannelHistograms.CHANNELS; c++) {
+            long sum = 0;
+            for (int v = 0; v < ChannelHistograms.VALUES; v++) sum += total[c * ChannelHistograms.VALUES + v];
+            assertEquals(37 * 23, sum);
+        }
+        assertEquals(5, histograms.bandCount());
+    }
+
+    @Test
+    void chiSquare_cleanImage() {
+        ChiSquareAttack.Result result = analyzer.chiSquare(evenCover(128, 128));
+
+        assertTrue(result.pValue() < 0.01);
+        assertEquals(0, result.estimatedRate());
+    }
+
+    // Sequential LSB over the top half of the image: the growing window turns negative halfway down
+    @Test
+    void chiSquare_estimatesSequentialPayload() {
+        int halfCapacity = 128 * 128 * 3 / 8 / 2;
+        BufferedImage stego = new LSBAlgorithm().embed(evenCover(128, 128), randomBytes(halfCapacity));
+
+        ChiSquareAttack.Result result = analyzer.chiSquare(stego);
+
+        assertEquals(0.5, result.estimatedRate(), 0.1);
+    }
+
+    @Test
+    void rs_cleanAndFullyEmbedded() {
+        BufferedImage cover = smoothCover(256, 256);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(256 * 256 * 3 / 8 - 5));
+
+        assertTrue(analyzer.rsAnalysis(cover).rate() < 0.1);
+        assertTrue(analyzer.rsAnalysis(stego).rate() > 0.4);
+    }
+
+    // --- Bit planes ---
+    // One transposing pass must give exactly the bits a per-pixel shift would
+
+    @Test
+    void bitPlanes_matchPerPixelBits() {
+        // 70 wide: one full 64-pixel word per row plus a partial one
+        BufferedImage img = createTestImage(70, 9);
+
+        BitPlanes planes = analyzer.bitPlanes(img);
+
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 70; x++) {
+                int rgb = img.getRGB(x, y);
+                for (int c = 0; c < 3; c++) {
+                    for (int p = 0; p < BitPlanes.PLANES; p++) {
+                        boolean expected = ((rgb >> (16 - 8 * c + p)) & 1) != 0;
+                        assertEquals(expected, planes.bit(c, p, x, y), "x=" + x + " y=" + y + " c=" + c + " p=" + p);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void bitPlanes_planeZeroRendersLsbXray() {
+        BufferedImage img = createTestImage(70, 9);
+
+        BufferedImage fromPlanes = analyzer.bitPlanes(img).render(0);
+
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 70; x++) {
+                int rgb = img.getRGB(x, y);
+                int lsbs = (rgb & 0x010101) * 0xFF;
+                assertEquals(0xFF000000 | lsbs, fromPlanes.getRGB(x, y));
+            }
+        }
+    }
+
+    // LSB embedding only ever touches plane 0
+    @Test
+    void bitPlanes_compareCoverAndStego() {
+        BufferedImage cover = createTestImage(64, 64);
+        BufferedImage stego = new LSBAlgorithm().embed(cover, randomBytes(500));
+
+        BitPlanes before = analyzer.bitPlanes(cover);
+        BitPlanes after = analyzer.bitPlanes(stego);
+
+        assertTrue(after.countDifferences(before, 0, 0) > 0);
+        for (int c = 0; c < 3; c++) {
+            for (int p = 1; p < BitPlanes.PLANES; p++) {
+                assertEquals(0, after.countDifferences(before, c, p));
+            }
+        }
+    }
+
+    // --- Compact result images ---
+    // X-ray and heatmap stay packed; expanding them must give the same colours as the full-size versions did
+
+    // The word-at-a-time expand must match the per-pixel lookup, here across a word boundary at x = 64
+    @Test
+    void compactXray_expandsToLsbXray() {
+        BufferedImage img = createTestImage(100, 30);
+
+        PackedXray xray = analyzer.bitPlanes(img).xray(0);
+
+        int[] tile = xray.expand(60, 10, 40, 20);
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 40; x++) {
+                assertEquals(xray.argb(60 + x, 10 + y), tile[y * 40 + x]);
+            }
+        }
+        // 3 bits per pixel, padded to whole words per row
+        assertEquals(3L * 2 * 30 * Long.BYTES, xray.sizeInBytes());
+    }
+
+    // One channel off by one shows as 50, one off by three in blue as 150, by five as 250, large changes saturate at 255
+    @Test
+    void compactHeatmap_levels() {
+        BufferedImage a = new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage b = new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB);
+        a.setRGB(0, 0, 0x101010);
+        b.setRGB(0, 0, 0x111010);
+        a.setRGB(1, 0, 0x101010);
+        b.setRGB(1, 0, 0x101013);
+        a.setRGB(2, 0, 0x101010);
+        b.setRGB(2, 0, 0x801010);
+        a.setRGB(3, 0, 0x10101F);
+        b.setRGB(3, 0, 0x17171A);
+
+        AnalyzingModel.HeatmapResult result = analyzer.differenceHeatmap(a, b);
+
+        assertEquals(4, result.modifiedPixels());
+        assertEquals(0xFF320000, result.image().argb(0, 0));
+        assertEquals(0xFF000096, result.image().argb(1, 0));
+        assertEquals(0xFFFF0000, result.image().argb(2, 0));
+        assertEquals(0xFFFFFFFA, result.image().argb(3, 0));
+        // One level byte per pixel and one word of blue's third bit per row
+        assertEquals(4 + Long.BYTES, result.image().sizeInBytes());
+    }
+
+    // --- Decoded image cache ---
+    // Each tab asks the shared cache; a file is decoded once until it changes on disk
+
+    private static File writePng(Path dir, String name, BufferedImage image) throws IOException {
+        File file = dir.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    void imageCache_reusesDecodeUntilFileChanges(@TempDir Path dir) throws IOException {
+        DecodedImageCache cache = new DecodedImageCache(1 << 20);
+        File file = writePng(dir, "cover.png", createTestImage(16, 16));
+
+        BufferedImage first = cache.load(file);
+        assertSame(first, cache.load(file));
+        assertEquals(BufferedImage.TYPE_INT_ARGB, first.getType());
+
+        ImageIO.write(createTestImage(17, 16), "png", file);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        BufferedImage reloaded = cache.load(file);
+        assertNotSame(first, reloaded);
+        assertEquals(17, reloaded.getWidth());
+    }
+
+    // Three 32x32 images (4 KB each) against an 8 KB budget: the oldest is evicted to a soft reference
+    @Test
+    void imageCache_evictsLeastRecentlyUsedToSoftReference(@TempDir Path dir) throws IOException {
+        DecodedImageCache cache = new DecodedImageCache(8 * 1024);
+        File a = writePng(dir, "a.png", createTestImage(32, 32));
+        File b = writePng(dir, "b.png", createTestImage(32, 32));
+        File c = writePng(dir, "c.png", createTestImage(32, 32));
+
+        BufferedImage imageA = cache.load(a);
+        cache.load(b);
+        cache.load(c);
+
+        assertEquals(2, cache.strongCount());
+        assertEquals(8 * 1024, cache.strongBytes());
+        // Still reachable here, so the soft reference brings back the very same image
+        assertSame(imageA, cache.get(DecodedImageCache.Key.of(a)));
+    }
+
+    @Test
+    void pixelCache_reloadsRawPixelsAcrossSessions(@TempDir Path dir) throws IOException {
+        BufferedImage original = createTestImage(40, 30);
+        File png = writePng(dir, "cover.png", original);
+        Path cacheDir = dir.resolve("cache");
+
+        new DecodedImageCache(1 << 20, new RawPixelCache(cacheDir, 1 << 20)).load(png);
+        // A fresh cache object stands in for the next session
+        RawPixelCache disk = new RawPixelCache(cacheDir, 1 << 20);
+        BufferedImage reloaded = disk.load(png);
+
+        assertNotNull(reloaded);
+        for (int y = 0; y < original.getHeight(); y++) {
+            for (int x = 0; x < original.getWidth(); x++) {
+                assertEquals(original.getRGB(x, y), reloaded.getRGB(x, y));
+            }
+        }
+        // Keyed by content, so a copy under another name hits as well
+        File copy = Files.copy(png.toPath(), dir.resolve("copy.png")).toFile();
+        assertNotNull(disk.load(copy));
+    }
+
+    @Test
+    void pixelCache_evictsLeastRecentlyUsedPastItsLimit(@TempDir Path dir) throws IOException {
+        long oneImage = 16 + 32 * 32 * 4;
+        RawPixelCache disk = new RawPixelCache(dir.resolve("cache"), oneImage + oneImage / 2);
+        BufferedImage first = createTestImage(32, 32);
+        BufferedImage second = createTestImage(32, 32);
+        second.setRGB(0, 0, ~second.getRGB(0, 0));
+        File a = writePng(dir, "a.png", first);
+        File b = writePng(dir, "b.png", second);
+
+        disk.store(a, first);
+        // Make the first entry clearly the oldest regardless of timestamp resolution
+        try (var files = Files.list(dir.resolve("cache"))) {
+            for (Path p : files.filter(p -> p.toString().endsWith(".argb")).toList()) {
+                Files.setLastModifiedTime(p, FileTime.fromMillis(0));
+            }
+        }
+        disk.store(b, second);
+
+        // The evicted file's hash is dropped from the index as well
+        Properties index = new Properties();
+        try (var in = Files.newInputStream(dir.resolve("cache").resolve("index.properties"))) {
+            index.load(in);
+        }
+        assertEquals(1, index.size());
+        assertTrue(index.keys().nextElement().toString().contains("b.png"));
+        assertNull(disk.load(a));
+        assertNotNull(disk.load(b));
+    }
+
+    @Test
+    void pixelCache_failuresFallBackToDecoding(@TempDir Path dir) throws IOException {
+        BufferedImage original = createTestImage(20, 20);
+        File png = writePng(dir, "cover.png", original);
+        Path cacheDir = dir.resolve("cache");
+        DecodedImageCache cache = new DecodedImageCache(1 << 20, new RawPixelCache(cacheDir, 1 << 20));
+
+        // The disk tier can neither hash nor store once its folder is gone, but the image still loads
+        Files.delete(cacheDir);
+        BufferedImage loaded = cache.load(png);
+        assertEquals(original.getRGB(5, 5), loaded.getRGB(5, 5));
+    }
+
+    @Test
+    void batch_matchesByNameAndStreamsOneRowPerPair(@TempDir Path dir) throws Exception {
+        Path originals = Files.createDirectories(dir.resolve("originals"));
+        Path stegos = Files.createDirectories(dir.resolve("stegos"));
+        BufferedImage cover = createTestImage(30, 20);
+        BufferedImage changed = createTestImage(30, 20);
+        changed.setRGB(3, 4, changed.getRGB(3, 4) ^ 1);
+        changed.setRGB(7, 9, changed.getRGB(7, 9) ^ 0x10101);
+        writePng(originals, "a.png", cover);
+        writePng(originals, "b.png", cover);
+        writePng(stegos, "a_stego.png", changed);
+        writePng(stegos, "b-stego.png", cover);
+        writePng(stegos, "orphan_stego.png", cover);
+
+        List<BatchAnalysis.Pair> pairs = BatchAnalysis.match(originals, Pattern.compile("(.+)\\.png"),
+                stegos, Pattern.compile("(.+?)(?:[_-]stego)?\\.png"));
+        assertEquals(List.of("a", "b", "orphan"), pairs.stream().map(BatchAnalysis.Pair::key).toList());
+        assertNull(pairs.get(2).original());
+
+        Path csv = dir.resolve("report.csv");
+        BatchAnalysis.Summary summary;
+        try (BatchReport report = BatchReport.open(csv, BatchReport.Format.forFile(csv))) {
+            summary = new BatchAnalysis(new AnalyzingModel(), 64L << 20, 2).run(pairs, report);
+        }
+        assertEquals(3, summary.pairs());
+        assertEquals(1, summary.failed());
+
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("key,original,stego,width,height,modified_pixels,mse,psnr"));
+        String a = lines.stream().filter(l -> l.startsWith("a,")).findFirst().orElseThrow();
+        double mse = new AnalyzingModel().calculateMse(cover, changed);
+        assertTrue(a.startsWith("a,a.png,a_stego.png,30,20,2," + mse + ","), a);
+        assertTrue(lines.stream().anyMatch(l -> l.startsWith("b,b.png,b-stego.png,30,20,0,0.0,inf,")));
+        assertTrue(lines.stream().anyMatch(l -> l.startsWith("orphan,,orphan_stego.png,-1,-1,-1,,,") && l.endsWith("No original matches this stego image")));
+
+        Path jsonl = dir.resolve("report.jsonl");
+        try (BatchReport report = BatchReport.open(jsonl, BatchReport.Format.forFile(jsonl))) {
+            new BatchAnalysis(new AnalyzingModel(), 64L << 20, 1).run(pairs.subList(1, 2), report);
+        }
+        String json = Files.readString(jsonl).strip();
+        assertTrue(json.startsWith("{\"key\":\"b\",\"original\":\"b.png\""), json);
+        assertTrue(json.contains("\"psnr\":\"inf\"") && json.endsWith("\"error\":null}"), json);
+    }
+
+    @Test
+    void resultCache_reusesComparisonsAndDropsDamagedEntries(@TempDir Path dir) throws IOException {
+        BufferedImage cover = createTestImage(40, 30);
+        BufferedImage stego = embedder.embed(cover, "cached".getBytes(StandardCharsets.UTF_8), "LSB", 0);
+        File coverFile = writePng(dir, "cover.png", cover);
+        File stegoFile = writePng(dir, "stego.png", stego);
+        Path cacheDir = dir.resolve("results");
+        AnalyzingModel model = new AnalyzingModel(new ResultCache(cacheDir, 1 << 20));
+        assertNull(model.cachedComparison(coverFile, stegoFile, 16));
+
+        ByteHeatmap heatmap = model.differenceHeatmap(cover, stego).image();
+        Ssim.Result similarity = model.structuralSimilarity(cover, stego);
+        model.storeComparison(coverFile, stegoFile, 16, new AnalyzingModel.Comparison(heatmap, 0.25, 2, 6, similarity));
+        // A new cache object over the same folder stands in for the next session; a copied file still hits
+        AnalyzingModel next = new AnalyzingModel(new ResultCache(cacheDir, 1 << 20));
+        File copy = Files.copy(stegoFile.toPath(), dir.resolve("copy.png")).toFile();
+        AnalyzingModel.Comparison cached = next.cachedComparison(coverFile, copy, 16);
+
+        assertNotNull(cached);
+        assertEquals(0.25, cached.mse());
+        assertEquals(2, cached.modifiedTiles());
+        assertEquals(similarity, cached.similarity());
+        assertEquals(heatmap.modifiedPixels(), cached.heatmap().modifiedPixels());
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) assertEquals(heatmap.argb(x, y), cached.heatmap().argb(x, y));
+        }
+        // Other parameters are a different entry
+        assertNull(next.cachedComparison(coverFile, stegoFile, 32));
+
+        // A flipped byte fails the checksum; the entry is deleted instead of being returned
+        Path entry;
+        try (var files = Files.list(cacheDir)) {
+            entry = files.filter(p -> p.toString().endsWith(".result")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(entry, bytes);
+        assertNull(next.cachedComparison(coverFile, stegoFile, 16));
+        assertFalse(Files.exists(entry));
+
+        // A truncated entry fails while its header is parsed; it is deleted the same way
+        model.storeComparison(coverFile, stegoFile, 16, new AnalyzingModel.Comparison(heatmap, 0.25, 2, 6, similarity));
+        Files.write(entry, Arrays.copyOf(Files.readAllBytes(entry), 10));
+        assertNull(next.cachedComparison(coverFile, stegoFile, 16));
+        assertFalse(Files.exists(entry));
+    }
+
+    @Test
+    void resultCache_returnsStoredExtractionForTheSameFileAlgorithmAndKey(@TempDir Path dir) throws IOException {
+        byte[] secret = "remember me".getBytes(StandardCharsets.UTF_8);
+        BufferedImage stego = embedder.embed(createTestImage(40, 30), secret, "Randomized LSB", 42);
+        File stegoFile = writePng(dir, "stego.png", stego);
+        ExtractingModel cached = new ExtractingModel(new ResultCache(dir.resolve("results"), 1 << 20));
+
+        assertArrayEquals(secret, cached.extract(stegoFile, stego, "Randomized LSB", 42, ExecutionContext.NONE));
+        // Served from the cache: the pixels passed in are not looked at again
+        BufferedImage blank = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        assertArrayEquals(secret, cached.extract(stegoFile, blank, "Randomized LSB", 42, ExecutionContext.NONE));
+        // A different key is a different entry
+        assertThrows(RuntimeException.class, () -> cached.extract(stegoFile, blank, "Randomized LSB", 43, ExecutionContext.NONE));
+    }
+
+    @Test
+    void tiledComparison_redoesOnlyChangedTilesAndMatchesAFullComparison() throws IOException {
+        BufferedImage cover = createTestImage(600, 520);
+        BufferedImage first = embedder.embed(cover, "first message".getBytes(StandardCharsets.UTF_8), "LSB", 0);
+        TiledComparison before = TiledComparison.of(cover, first, 50, null);
+        assertEquals(9, before.recomputedTiles());
+
+        // Same cover, slightly different payload, plus one change inside the centre tile
+        BufferedImage second = embedder.embed(cover, "first massage".getBytes(StandardCharsets.UTF_8), "LSB", 0);
+        second.setRGB(300, 300, second.getRGB(300, 300) ^ 0x030201);
+        TiledComparison after = TiledComparison.of(cover, second, 50, before);
+
+        assertEquals(2, after.recomputedTiles());
+        assertEquals(analyzer.calculateMse(cover, second), after.mse(), 1e-12);
+        assertEquals(2, after.modifiedTiles());
+        ByteHeatmap full = analyzer.differenceHeatmap(cover, second).image();
+        assertEquals(full.modifiedPixels(), after.heatmap().modifiedPixels());
+        BitPlanes planes = BitPlanes.of(second);
+        for (int y = 0; y < 520; y++) {
+            for (int x = 0; x < 600; x++) assertEquals(full.argb(x, y), after.heatmap().argb(x, y));
+        }
+        for (int c = 0; c < 3; c++) {
+            for (int p = 0; p < BitPlanes.PLANES; p++) assertArrayEquals(planes.plane(c, p), after.planes().plane(c, p));
+        }
+        // The earlier comparison is left untouched
+        assertEquals(analyzer.calculateMse(cover, first), before.mse(), 1e-12);
+
+        // Read back without planes, it still saves the comparison of unchanged tiles
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        after.writeTo(new DataOutputStream(bytes));
+        TiledComparison stored = TiledComparison.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        TiledComparison again = TiledComparison.of(cover, first, 50, stored);
+        assertEquals(2, again.recomputedTiles());
+        assertEquals(before.mse(), again.mse(), 1e-12);
+        assertArrayEquals(BitPlanes.of(first).plane(0, 0), again.planes().plane(0, 0));
+    }
+
+    @Test
+    void chunkedPayload_verifiesRangesWithoutReadingTheRest() {
+        byte[] secret = new byte[10_000];
+        new Random(3).nextBytes(secret);
+        BufferedImage stego = embedder.embedChunked(createTestImage(200, 200), secret, "Randomized LSB", 5, ExecutionContext.NONE);
+
+        assertArrayEquals(secret, extractor.extract(stego, "Randomized LSB", 5));
+        assertArrayEquals(Arrays.copyOfRange(secret, 4000, 4100),
+                extractor.extractRange(stego, "Randomized LSB", 5, 4000, 100, ExecutionContext.NONE));
+
+        // Wrapped by hand with small chunks: a damaged byte fails only the ranges whose chunk holds it
+        byte[] wrapped = ChunkedPayload.wrap(secret, 1024);
+        wrapped[wrapped.length - 1] ^= 1;
+        ChunkedPayload.RangeReader reader = (offset, length) -> Arrays.copyOfRange(wrapped, offset, offset + length);
+        assertArrayEquals(Arrays.copyOfRange(secret, 0, 2048), ChunkedPayload.readRange(reader, 0, 2048));
+        assertThrows(IllegalStateException.class, () -> ChunkedPayload.readRange(reader, 9_500, 10));
+        assertThrows(IllegalStateException.class, () -> ChunkedPayload.unwrap(wrapped));
+
+        // Plain secrets pass through both paths untouched
+        BufferedImage plain = embedder.embed(createTestImage(50, 50), "plain".getBytes(StandardCharsets.UTF_8), "LSB", 0);
+        assertFalse(ChunkedPayload.isWrapped("plain".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals("lai".getBytes(StandardCharsets.UTF_8), extractor.extractRange(plain, "LSB", 0, 1, 3, ExecutionContext.NONE));
+    }
+
+    @Test
+    void shardedEmbedding_reassemblesFromCoversInAnyOrder() {
+        byte[] secret = new byte[50_000];
+        new Random(4).nextBytes(secret);
+        List<BufferedImage> covers = List.of(createTestImage(200, 200), createTestImage(120, 100), createTestImage(300, 150));
+        ShardedEmbedding sharding = new ShardedEmbedding();
+
+        // No single cover holds the secret, together they do
+        assertTrue(covers.stream().allMatch(c -> Algorithms.byName("Josephus LSB 3-3-2 v2", 11).capacity(c) < secret.length));
+        List<BufferedImage> stegos = sharding.embed(covers, secret, "Josephus LSB 3-3-2 v2", 11, ExecutionContext.NONE);
+
+        List<BufferedImage> shuffled = List.of(stegos.get(2), stegos.get(0), stegos.get(1));
+        assertArrayEquals(secret, sharding.extract(shuffled, "Josephus LSB 3-3-2 v2", 11, ExecutionContext.NONE));
+
+        // A missing shard or covers that are too small together are reported, not silently truncated
+        assertThrows(IllegalStateException.class,
+                () -> sharding.extract(stegos.subList(0, 2), "Josephus LSB 3-3-2 v2", 11, ExecutionContext.NONE));
+        assertThrows(IllegalArgumentException.class,
+                () -> sharding.embed(List.of(createTestImage(50, 50)), secret, "LSB", 0, ExecutionContext.NONE));
+    }
+
+    @Test
+    void batch_sameFolderPairsEachOriginalWithItsStego(@TempDir Path dir) throws IOException {
+        BufferedImage cover = createTestImage(10, 10);
+        writePng(dir, "a.png", cover);
+        writePng(dir, "a_stego.png", cover);
+        writePng(dir, "b.png", cover);
+
+        // a.png also matches the stego pattern as "a", but it is the original of "a" and must not hide a_stego.png
+        List<BatchAnalysis.Pair> pairs = BatchAnalysis.match(dir, Pattern.compile("(.+)\\.png"),
+                dir, Pattern.compile("(.+?)(?:[_-]stego)?\\.png"));
+        assertEquals(1, pairs.size());
+        assertEquals("a.png", pairs.get(0).original().getName());
+        assertEquals("a_stego.png", pairs.get(0).stego().getName());
+    }
+
+    @Test
+    void shardedEmbedding_passesTheCallersDeadlineToEveryCover() {
+        List<Boolean> expired = Collections.synchronizedList(new ArrayList<>());
+        EmbeddingModel recording = new EmbeddingModel() {
+            @Override
+            public BufferedImage embed(BufferedImage coverImage, byte[] secret, String algorithm, int key,
+                                       ExecutionContext context) {
+                expired.add(context.isExpired());
+                return super.embed(coverImage, secret, algorithm, key, context);
+            }
+        };
+        ShardedEmbedding sharding = new ShardedEmbedding(recording, extractor);
+        List<BufferedImage> covers = List.of(createTestImage(100, 100), createTestImage(100, 100));
+        ExecutionContext late = ExecutionContext.NONE.withTimeout(Duration.ZERO);
+
+        // The per-cover loops stop on the deadline themselves, not only between covers
+        assertThrows(DeadlineExceededException.class,
+                () -> sharding.embed(covers, new byte[5_000], "Josephus LSB 3-3-2 v2", 1, late));
+        assertFalse(expired.isEmpty());
+        assertTrue(expired.stream().allMatch(e -> e));
+    }
+
+    // --- Mipmap pyramid ---
+
+    @Test
+    void mipmap_levelZeroMatchesSourceAndTopFitsOneTile() {
+        BufferedImage img = createTestImage(600, 300);
+        MipmapPyramid pyramid = MipmapPyramid.of(CompactRaster.of(img));
+
+        assertEquals(3, pyramid.levels());
+        assertEquals(3, pyramid.tilesX(0));
+        assertEquals(88, pyramid.tileWidth(0, 2));
+        int[] edge = pyramid.tile(0, 2, 1);
+        assertEquals(img.getRGB(512 + 87, 256 + 43), edge[43 * 88 + 87]);
+
+        int top = pyramid.levels() - 1;
+        assertEquals(1, pyramid.tilesX(top));
+        assertEquals(150, pyramid.tileWidth(top, 0));
+        assertEquals(75, pyramid.tileHeight(top, 0));
+    }
+
+    @Test
+    void mipmap_coarserLevelsAverageTwoByTwo() {
+        BufferedImage img = new BufferedImage(300, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 300; x++) {
+                img.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFFFF : 0xFF000000);
+            }
+        }
+        MipmapPyramid pyramid = MipmapPyramid.of(CompactRaster.of(img));
+
+        int[] half = pyramid.tile(1, 0, 0);
+        assertEquals(150 * 2, half.length);
+        // Two white and two black pixels round to mid grey
+        for (int argb : half) assertEquals(0xFF808080, argb);
+        // Only the tile asked for is cached, not the children built for it
+        assertNotNull(pyramid.cachedTile(1, 0, 0));
+        assertNull(pyramid.cachedTile(0, 1, 0));
+    }
+
+    // Building a zoomed-out tile must not push the tiles already on screen out of a small cache
+    @Test
+    void mipmap_coarseTilesKeepVisibleTilesCached() {
+        MipmapPyramid pyramid = new MipmapPyramid(CompactRaster.of(createTestImage(1024, 1024)), 3);
+
+        pyramid.tile(1, 0, 0);
+        pyramid.tile(1, 1, 0);
+        pyramid.tile(2, 0, 0);
+
+        assertNotNull(pyramid.cachedTile(1, 0, 0));
+        assertNotNull(pyramid.cachedTile(1, 1, 0));
+        assertNotNull(pyramid.cachedTile(2, 0, 0));
+    }
 }